@@ -0,0 +1,54 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary folders of the benchmarks.
+ *
+ * @author Michael Büchner
+ */
+class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Deletes a folder with all its content.
+     *
+     * @param dir the folder
+     * @throws IOException
+     */
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
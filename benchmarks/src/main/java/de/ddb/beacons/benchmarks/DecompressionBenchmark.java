@@ -0,0 +1,143 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import de.ddb.beacons.helpers.DumpStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single-threaded decompression streams with the ones opened by
+ * {@link DumpStreams} (parallel bzip2, read-ahead gzip). The input is a
+ * synthetic dump of JSON lines, compressed once per trial.
+ *
+ * @author Michael Büchner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecompressionBenchmark {
+
+    @Param({"64"})
+    private int sizeMiB;
+
+    @Param({"4"})
+    private int threads;
+
+    private Path bzip2File;
+    private Path gzipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bzip2File = Files.createTempFile("wkd2beacons-bench", ".json.bz2");
+        gzipFile = Files.createTempFile("wkd2beacons-bench", ".json.gz");
+        final byte[] data = SyntheticJson.lines(sizeMiB << 20, new Random(42));
+        try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(bzip2File))) {
+            out.write(data);
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile), 1 << 16)) {
+            out.write(data);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bzip2File);
+        Files.deleteIfExists(gzipFile);
+    }
+
+    @Benchmark
+    public long bzip2SingleThreaded() throws IOException {
+        return drain(DumpStreams.open(bzip2File, 1));
+    }
+
+    @Benchmark
+    public long bzip2Parallel() throws IOException {
+        return drain(DumpStreams.open(bzip2File, threads));
+    }
+
+    @Benchmark
+    public long gzipSingleThreaded() throws IOException {
+        return drain(DumpStreams.open(gzipFile, 1));
+    }
+
+    @Benchmark
+    public long gzipReadAhead() throws IOException {
+        return drain(DumpStreams.open(gzipFile, threads));
+    }
+
+    private static long drain(InputStream stream) throws IOException {
+        long n = 0;
+        try (InputStream in = stream) {
+            final byte[] buf = new byte[1 << 16];
+            int r;
+            while ((r = in.read(buf)) >= 0) {
+                n += r;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Entity-like JSON lines, compressible roughly like the real dump.
+     */
+    static class SyntheticJson {
+
+        static byte[] lines(int size, Random random) {
+            final StringBuilder sb = new StringBuilder(size + 1024);
+            sb.append("[\n");
+            int id = 1;
+            while (sb.length() < size) {
+                sb.append("{\"type\":\"item\",\"id\":\"Q").append(id++)
+                        .append("\",\"labels\":{\"de\":{\"language\":\"de\",\"value\":\"")
+                        .append(Long.toString(random.nextLong() & Long.MAX_VALUE, 36))
+                        .append("\"}},\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":")
+                        .append(random.nextInt(100_000))
+                        .append("},\"type\":\"wikibase-entityid\"}}}]}},\n");
+            }
+            sb.append("]\n");
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
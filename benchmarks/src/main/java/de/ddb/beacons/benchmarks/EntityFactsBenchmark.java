@@ -0,0 +1,100 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.EntityFacts;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cache hits of the entity type database (no HTTP requests). Scores are
+ * lookups per second.
+ *
+ * @author Michael Büchner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityFactsBenchmark {
+
+    private final static int ENTRIES = 10_000;
+
+    private Path tmpDir;
+    private List<String> gnds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("wkd2beacons-bench");
+        Configuration.get().setValue("dataDir", tmpDir.toString());
+
+        final ItemCorpus corpus = new ItemCorpus(ENTRIES, 42);
+        gnds = corpus.getGnds();
+        EntityFacts.get().load();
+        for (int i = 0; i < ENTRIES; ++i) {
+            EntityFacts.get().importEntityType(gnds.get(i), corpus.getTypes().get(i));
+        }
+        EntityFacts.get().commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        EntityFacts.get().save();
+        BenchmarkFiles.deleteRecursively(tmpDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public void getEntityType(Blackhole bh) {
+        final EntityFacts entityFacts = EntityFacts.get();
+        for (String gnd : gnds) {
+            bh.consume(entityFacts.getEntityType(gnd));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public void getEntityTypeAsync(Blackhole bh) {
+        final EntityFacts entityFacts = EntityFacts.get();
+        for (String gnd : gnds) {
+            bh.consume(entityFacts.getEntityTypeAsync(gnd));
+        }
+    }
+}
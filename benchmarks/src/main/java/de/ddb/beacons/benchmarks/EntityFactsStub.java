@@ -0,0 +1,102 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Entity Facts. Every GND ID gets a stable entity type
+ * derived from its hash, optionally after a simulated latency.
+ *
+ * @author Michael Büchner
+ */
+class EntityFactsStub implements AutoCloseable {
+
+    private final static String[] TYPES = {"person", "person", "person", "organisation", "place", "family", "event"};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int latencyMillis;
+    private final AtomicLong requests;
+
+    /**
+     * Starts the stub on a free port of the loopback interface.
+     *
+     * @param latencyMillis simulated latency of each request
+     * @throws IOException
+     */
+    EntityFactsStub(int latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.requests = new AtomicLong();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the base URL for entityFactsUrl
+     */
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return the number of answered requests
+     */
+    long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            final String gnd = exchange.getRequestURI().getPath().substring(1);
+            final String type = TYPES[Math.floorMod(gnd.hashCode(), TYPES.length)];
+            final byte[] body = ("{\"@id\":\"https://d-nb.info/gnd/" + gnd + "\",\"@type\":\"" + type + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            requests.incrementAndGet();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
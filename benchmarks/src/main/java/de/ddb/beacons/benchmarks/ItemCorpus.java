@@ -0,0 +1,127 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * Reproducible corpus of Wikidata items with a GND ID, generated by
+ * {@link SyntheticDump}. The same seed always gives the same items.
+ *
+ * @author Michael Büchner
+ */
+class ItemCorpus {
+
+    private final static EntityType[] TYPES = {EntityType.PERSON, EntityType.PERSON, EntityType.PERSON, EntityType.ORGANISATION, EntityType.PLACE, EntityType.FAMILY, EntityType.EVENT, EntityType.NA};
+
+    private final List<byte[]> lines;
+    private final List<String> gnds;
+    private final List<EntityType> types;
+
+    /**
+     * Generates the corpus.
+     *
+     * @param size number of items
+     * @param seed seed of the random generator
+     */
+    ItemCorpus(int size, long seed) {
+        final Random random = new Random(seed);
+        this.lines = new ArrayList<>(size);
+        this.gnds = new ArrayList<>(size);
+        this.types = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final String gnd = SyntheticDump.gnd(random);
+            gnds.add(gnd);
+            types.add(TYPES[random.nextInt(TYPES.length)]);
+            lines.add(SyntheticDump.item(i + 1, gnd, 2.0 / 3, 1.0 / 3, random).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return the items as dump lines (without the trailing comma)
+     */
+    List<byte[]> getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the GND ID of every item
+     */
+    List<String> getGnds() {
+        return gnds;
+    }
+
+    /**
+     * @return an entity type for every GND ID
+     */
+    List<EntityType> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return the items deserialized by WDTK
+     * @throws IOException
+     */
+    List<ItemDocument> getDocuments() throws IOException {
+        final ObjectReader reader = documentReader();
+        final List<ItemDocument> documents = new ArrayList<>(lines.size());
+        for (byte[] line : lines) {
+            documents.add((ItemDocument) reader.readValue(line));
+        }
+        return documents;
+    }
+
+    /**
+     * @return a reader configured like the one of the dump processor
+     */
+    static ObjectReader documentReader() {
+        return new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+    }
+
+    /**
+     * @return the sites table entries used by the runners
+     */
+    static Sites sites() {
+        final SitesImpl sites = new SitesImpl();
+        sites.setSiteInformation("commonswiki", "commons", "en", "mediawiki", "https://commons.wikimedia.org/w/$1", "https://commons.wikimedia.org/wiki/$1");
+        for (String site : SyntheticDump.SITES) {
+            final String language = site.substring(0, 2);
+            final String project = site.substring(2);
+            final String host = project.equals("wiki") ? language + ".wikipedia.org" : language + ".wikisource.org";
+            sites.setSiteInformation(site, project.equals("wiki") ? "wikipedia" : "wikisource", language, "mediawiki", "https://" + host + "/w/$1", "https://" + host + "/wiki/$1");
+        }
+        return sites;
+    }
+}
@@ -0,0 +1,155 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.EntityFacts;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.runners.BeaconGndImage;
+import de.ddb.beacons.runners.BeaconGndWikidata;
+import de.ddb.beacons.runners.BeaconGndWikipedia;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+
+/**
+ * The per-item hot path: deserializing a dump line with WDTK, extracting the
+ * GND data of an item and handing it to each runner. Scores are items per
+ * second; run with <code>-prof gc</code> to see the allocations per item. The
+ * entity types of all items are in the cache, so the image runner never
+ * calls Entity Facts.
+ *
+ * @author Michael Büchner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemProcessingBenchmark {
+
+    private final static int ITEMS = 10_000;
+
+    private Path tmpDir;
+    private ObjectReader reader;
+    private List<byte[]> lines;
+    private List<ItemDocument> documents;
+    private List<GndItem> items;
+    private BeaconGndWikidata wikidata;
+    private BeaconGndWikipedia wikipedia;
+    private BeaconGndImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("wkd2beacons-bench");
+        Configuration.get().setValue("dataDir", tmpDir.toString());
+        Configuration.get().setValue("destDir", tmpDir.toString());
+
+        final ItemCorpus corpus = new ItemCorpus(ITEMS, 42);
+        reader = ItemCorpus.documentReader();
+        lines = corpus.getLines();
+        documents = corpus.getDocuments();
+        items = new ArrayList<>(ITEMS);
+        for (ItemDocument document : documents) {
+            final GndItem item = new GndItem();
+            item.load(document);
+            items.add(item);
+        }
+
+        EntityFacts.get().load();
+        for (int i = 0; i < ITEMS; ++i) {
+            EntityFacts.get().importEntityType(corpus.getGnds().get(i), corpus.getTypes().get(i));
+        }
+
+        wikidata = new BeaconGndWikidata("2025-01-01");
+        wikipedia = new BeaconGndWikipedia(ItemCorpus.sites(), "2025-01-01");
+        image = new BeaconGndImage(ItemCorpus.sites(), "2025-01-01");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wikidata.close();
+        wikipedia.close();
+        image.close();
+        EntityFacts.get().save();
+        BenchmarkFiles.deleteRecursively(tmpDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void deserialize(Blackhole bh) throws IOException {
+        for (byte[] line : lines) {
+            bh.consume(reader.readValue(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void loadGndItem(Blackhole bh) {
+        final GndItem item = new GndItem();
+        for (ItemDocument document : documents) {
+            bh.consume(item.load(document));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void runnerWikidata() {
+        for (GndItem item : items) {
+            wikidata.processGndItem(item);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void runnerWikipedia() {
+        for (GndItem item : items) {
+            wikipedia.processGndItem(item);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void runnerImage() {
+        for (GndItem item : items) {
+            image.processGndItem(item);
+        }
+    }
+}
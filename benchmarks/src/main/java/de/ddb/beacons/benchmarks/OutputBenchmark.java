@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import de.ddb.beacons.helpers.Compression;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing BEACON lines through {@link OutputWriter} (with each compression)
+ * compared to a plain {@link BufferedWriter}. Scores are lines per second,
+ * including opening and closing the file.
+ *
+ * @author Michael Büchner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+
+    private final static int LINES = 100_000;
+
+    @Param({"NONE", "GZIP", "ZSTD"})
+    private Compression compression;
+
+    private Path tmpDir;
+    private List<String> lines;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("wkd2beacons-bench");
+        final ItemCorpus corpus = new ItemCorpus(1000, 42);
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; ++i) {
+            lines.add(corpus.getGnds().get(i % 1000) + "||http://www.wikidata.org/entity/Q" + (i + 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(tmpDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public Path outputWriter() throws IOException {
+        final OutputFile file = OutputWriter.get().open(tmpDir.resolve("beacon.txt"), compression);
+        for (String line : lines) {
+            file.writeLine(line);
+        }
+        file.close();
+        return file.getPath();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public Path bufferedWriter() throws IOException {
+        final Path path = tmpDir.resolve("beacon-buffered.txt");
+        try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.newLine();
+            }
+        }
+        return path;
+    }
+}
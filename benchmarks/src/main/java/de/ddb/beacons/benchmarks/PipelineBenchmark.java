@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import de.ddb.beacons.App;
+import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.PhaseStats;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Runs the whole pipeline of {@link App} offline against a synthetic dump
+ * (see {@link SyntheticDump}) with a local Entity Facts stub and a generated
+ * sites table. Reports wall time, throughput, GC time and peak RSS of every
+ * phase. Only the dump and export phases are timed, not the generation of the
+ * dump.
+ *
+ * @author Michael Büchner
+ */
+public class PipelineBenchmark {
+
+    private final static String DUMP_DATE = "20250101";
+
+    public static void main(String[] args) throws IOException {
+        final Options options = new Options();
+        options.addOption("n", true, "Number of items (default: 100000)");
+        options.addOption("g", true, "Share of items with a GND ID (default: 0.1)");
+        options.addOption("s", true, "Probability of a site link per site (default: 0.3)");
+        options.addOption("i", true, "Probability of an image (default: 0.2)");
+        options.addOption("seed", true, "Seed of the random generator (default: 42)");
+        options.addOption("l", true, "Latency of the Entity Facts stub in ms (default: 0)");
+        options.addOption("w", true, "Working folder (default: a new temporary folder)");
+        options.addOption("k", false, "Keep the working folder");
+        options.addOption("h", false, "Print help text");
+
+        final CommandLine cmd;
+        final SyntheticDump dump;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("h")) {
+                new HelpFormatter().printHelp("PipelineBenchmark [options]", options);
+                return;
+            }
+            dump = SyntheticDump.fromCommandLine(cmd);
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println(e.getLocalizedMessage());
+            return;
+        }
+
+        final Path workDir = cmd.hasOption("w")
+                ? Files.createDirectories(Paths.get(cmd.getOptionValue("w")))
+                : Files.createTempDirectory("wkd2beacons-pipeline");
+        final Path dataDir = workDir.resolve("data");
+        final Path destDir = workDir.resolve("beacons");
+
+        try (EntityFactsStub stub = new EntityFactsStub(Integer.parseInt(cmd.getOptionValue("l", "0")))) {
+            final long start = System.currentTimeMillis();
+            final Path file = dump.writeDataDir(dataDir, DUMP_DATE);
+            System.out.printf("Generated %d items (%d MiB) in %d ms.%n", dump.getEntities(), Files.size(file) >> 20, System.currentTimeMillis() - start);
+
+            Configuration.get().setValue("entityFactsUrl", stub.getUrl());
+            App.main(new String[]{"-d", dataDir.toString(), "-o", destDir.toString(), "--offline"});
+
+            System.out.println();
+            System.out.printf("%-10s %10s %12s %-10s %12s %14s %10s %14s%n", "phase", "wall [ms]", "count", "unit", "per second", "entities/s", "GC [ms]", "peak RSS [MiB]");
+            for (PhaseStats phase : PhaseStats.getFinished()) {
+                final String entitiesPerSecond = phase.getName().equals("dump") && phase.getWallMillis() > 0
+                        ? String.format("%.0f", dump.getEntities() * 1000.0 / phase.getWallMillis())
+                        : "";
+                System.out.printf("%-10s %10d %12d %-10s %12.0f %14s %10d %14s%n",
+                        phase.getName(), phase.getWallMillis(), phase.getCount(), phase.getUnit(), phase.getRate(),
+                        entitiesPerSecond, phase.getGcMillis(), phase.getPeakRss() < 0 ? "n/a" : Long.toString(phase.getPeakRss() >> 20));
+            }
+            System.out.printf("Entity Facts stub answered %d requests.%n", stub.getRequests());
+        } finally {
+            if (!cmd.hasOption("k")) {
+                BenchmarkFiles.deleteRecursively(workDir);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.wikidata.wdtk.dumpfiles.DumpContentType;
+import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFile;
+import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFileManager;
+
+/**
+ * Writes a synthetic Wikidata JSON dump: one item per line, shaped like the
+ * real ones. The share of items with a GND ID, the probability of each site
+ * link and of an image are configurable; logos and crests are rarer than
+ * images. The same seed always gives the same dump.
+ *
+ * @author Michael Büchner
+ */
+public class SyntheticDump {
+
+    private final static String PROJECT = "wikidatawiki";
+    private final static String[] LANGUAGES = {"de", "en", "fr", "nl", "it"};
+    final static String[] SITES = {"dewiki", "enwiki", "frwiki", "dewikisource", "enwikisource"};
+
+    private final int entities;
+    private final double gndRatio;
+    private final double siteLinkRatio;
+    private final double imageRatio;
+    private final long seed;
+
+    /**
+     * Constructor.
+     *
+     * @param entities number of items
+     * @param gndRatio share of items with a GND ID (0..1)
+     * @param siteLinkRatio probability of a site link for each site (0..1)
+     * @param imageRatio probability of an image (0..1)
+     * @param seed seed of the random generator
+     */
+    public SyntheticDump(int entities, double gndRatio, double siteLinkRatio, double imageRatio, long seed) {
+        this.entities = entities;
+        this.gndRatio = gndRatio;
+        this.siteLinkRatio = siteLinkRatio;
+        this.imageRatio = imageRatio;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Options options = new Options();
+        options.addOption("n", true, "Number of items (default: 100000)");
+        options.addOption("g", true, "Share of items with a GND ID (default: 0.1)");
+        options.addOption("s", true, "Probability of a site link per site (default: 0.3)");
+        options.addOption("i", true, "Probability of an image (default: 0.2)");
+        options.addOption("seed", true, "Seed of the random generator (default: 42)");
+        options.addOption("h", false, "Print help text");
+        try {
+            final CommandLine cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("h") || cmd.getArgs().length != 1) {
+                new HelpFormatter().printHelp("SyntheticDump [options] <file.json.gz|file.json.bz2>", options);
+                return;
+            }
+            final SyntheticDump dump = fromCommandLine(cmd);
+            final Path file = Paths.get(cmd.getArgs()[0]);
+            final long start = System.currentTimeMillis();
+            dump.write(file);
+            System.out.printf("Wrote %d items to %s (%d MiB) in %d ms.%n", dump.entities, file, Files.size(file) >> 20, System.currentTimeMillis() - start);
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Creates a generator from the options n, g, s, i and seed.
+     */
+    static SyntheticDump fromCommandLine(CommandLine cmd) {
+        return new SyntheticDump(
+                Integer.parseInt(cmd.getOptionValue("n", "100000")),
+                Double.parseDouble(cmd.getOptionValue("g", "0.1")),
+                Double.parseDouble(cmd.getOptionValue("s", "0.3")),
+                Double.parseDouble(cmd.getOptionValue("i", "0.2")),
+                Long.parseLong(cmd.getOptionValue("seed", "42")));
+    }
+
+    public int getEntities() {
+        return entities;
+    }
+
+    /**
+     * Writes the dump. It is compressed according to the file extension
+     * (<code>.gz</code>, <code>.bz2</code> or none).
+     *
+     * @param file the dump file
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        final String name = file.getFileName().toString();
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        if (name.endsWith(".bz2")) {
+            out = new BZip2CompressorOutputStream(out);
+        } else if (name.endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        try (OutputStream os = out) {
+            final Random random = new Random(seed);
+            os.write("[\n".getBytes(StandardCharsets.UTF_8));
+            for (int i = 1; i <= entities; ++i) {
+                final String gnd = random.nextDouble() < gndRatio ? gnd(random) : null;
+                os.write(item(i, gnd, siteLinkRatio, imageRatio, random).getBytes(StandardCharsets.UTF_8));
+                os.write(i < entities ? ",\n".getBytes(StandardCharsets.UTF_8) : "\n".getBytes(StandardCharsets.UTF_8));
+            }
+            os.write("]\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes the dump and a matching sites table into a data folder, where
+     * Wikidata Toolkit finds them in offline mode.
+     *
+     * @param dataDir the data folder
+     * @param dateStamp the date of the dump (yyyyMMdd)
+     * @return the dump file
+     * @throws IOException
+     */
+    public Path writeDataDir(Path dataDir, String dateStamp) throws IOException {
+        final Path project = dataDir.resolve(WmfDumpFileManager.DOWNLOAD_DIRECTORY_NAME).resolve(PROJECT);
+        final Path json = Files.createDirectories(project.resolve(WmfDumpFile.getDumpFileDirectoryName(DumpContentType.JSON, dateStamp)))
+                .resolve(WmfDumpFile.getDumpFileName(DumpContentType.JSON, PROJECT, dateStamp));
+        write(json);
+        final Path sites = Files.createDirectories(project.resolve(WmfDumpFile.getDumpFileDirectoryName(DumpContentType.SITES, dateStamp)))
+                .resolve(WmfDumpFile.getDumpFileName(DumpContentType.SITES, PROJECT, dateStamp));
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(sites))) {
+            out.write(sitesTable().getBytes(StandardCharsets.UTF_8));
+        }
+        return json;
+    }
+
+    /**
+     * @return a sites table dump (SQL) with Commons and the sites of the
+     * generated site links
+     */
+    static String sitesTable() {
+        final StringBuilder sb = new StringBuilder("INSERT INTO `sites` VALUES ");
+        sb.append(site(1, "commonswiki", "commons", "en", "commons.wikimedia.org"));
+        for (int i = 0; i < SITES.length; ++i) {
+            final String language = SITES[i].substring(0, 2);
+            final boolean wikipedia = SITES[i].endsWith("wiki");
+            sb.append(',').append(site(i + 2, SITES[i], wikipedia ? "wikipedia" : "wikisource", language,
+                    language + (wikipedia ? ".wikipedia.org" : ".wikisource.org")));
+        }
+        return sb.append(";\n").toString();
+    }
+
+    private static String site(int id, String key, String group, String language, String host) {
+        final String filePath = "//" + host + "/w/$1";
+        final String pagePath = "//" + host + "/wiki/$1";
+        return "(" + id + ",'" + key + "','mediawiki','" + group + "','local','" + language + "','','"
+                + new StringBuilder(host).reverse() + ".','a:1:{s:5:\\\"paths\\\";a:2:{s:9:\\\"file_path\\\";s:" + filePath.length()
+                + ":\\\"" + filePath + "\\\";s:9:\\\"page_path\\\";s:" + pagePath.length() + ":\\\"" + pagePath + "\\\";}}',0,'a:0:{}')";
+    }
+
+    /**
+     * @return a random GND ID (person style or with check digit)
+     */
+    static String gnd(Random random) {
+        return random.nextBoolean()
+                ? Integer.toString(100_000_000 + random.nextInt(900_000_000))
+                : (1_000_000 + random.nextInt(9_000_000)) + "-" + "0123456789X".charAt(random.nextInt(11));
+    }
+
+    /**
+     * Generates an item as a dump line.
+     *
+     * @param id the numeric part of the Wikidata ID
+     * @param gnd the GND ID or <code>null</code>
+     * @param siteLinkRatio probability of a site link for each site
+     * @param imageRatio probability of an image
+     * @param random the random generator
+     * @return the JSON of the item
+     */
+    static String item(int id, String gnd, double siteLinkRatio, double imageRatio, Random random) {
+        final String qid = "Q" + id;
+        final StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\"type\":\"item\",\"id\":\"").append(qid).append("\",\"labels\":{");
+        terms(sb, random, false);
+        sb.append("},\"descriptions\":{");
+        terms(sb, random, false);
+        sb.append("},\"aliases\":{");
+        terms(sb, random, true);
+        sb.append("},\"claims\":{");
+        sb.append("\"P31\":[");
+        statement(sb, qid, "P31", "wikibase-item", "{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"}", random);
+        sb.append("],\"P569\":[");
+        statement(sb, qid, "P569", "time", "{\"value\":{\"time\":\"+" + (1500 + random.nextInt(500)) + "-01-01T00:00:00Z\",\"timezone\":0,\"before\":0,\"after\":0,\"precision\":9,\"calendarmodel\":\"http://www.wikidata.org/entity/Q1985727\"},\"type\":\"time\"}", random);
+        sb.append("]");
+        if (gnd != null) {
+            sb.append(",\"P227\":[");
+            statement(sb, qid, "P227", "external-id", "{\"value\":\"" + gnd + "\",\"type\":\"string\"}", random);
+            sb.append("]");
+        }
+        if (random.nextDouble() < imageRatio) {
+            sb.append(",\"P18\":[");
+            statement(sb, qid, "P18", "commonsMedia", "{\"value\":\"" + word(random) + " " + word(random) + ".jpg\",\"type\":\"string\"}", random);
+            sb.append("]");
+        }
+        if (random.nextDouble() < imageRatio / 3) {
+            sb.append(",\"P154\":[");
+            statement(sb, qid, "P154", "commonsMedia", "{\"value\":\"" + word(random) + " logo.svg\",\"type\":\"string\"}", random);
+            sb.append("]");
+        }
+        if (random.nextDouble() < imageRatio / 6) {
+            sb.append(",\"P94\":[");
+            statement(sb, qid, "P94", "commonsMedia", "{\"value\":\"Wappen " + word(random) + ".png\",\"type\":\"string\"}", random);
+            sb.append("]");
+        }
+        sb.append("},\"sitelinks\":{");
+        boolean first = true;
+        for (String site : SITES) {
+            if (random.nextDouble() >= siteLinkRatio) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(site).append("\":{\"site\":\"").append(site).append("\",\"title\":\"")
+                    .append(word(random)).append(' ').append(word(random)).append("\",\"badges\":[]}");
+        }
+        sb.append("},\"lastrevid\":").append(1_000_000_000 + random.nextInt(1_000_000_000)).append('}');
+        return sb.toString();
+    }
+
+    private static void terms(StringBuilder sb, Random random, boolean list) {
+        for (int i = 0; i < LANGUAGES.length; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            final String term = "{\"language\":\"" + LANGUAGES[i] + "\",\"value\":\"" + word(random) + " " + word(random) + "\"}";
+            sb.append('"').append(LANGUAGES[i]).append("\":");
+            sb.append(list ? "[" + term + "]" : term);
+        }
+    }
+
+    private static void statement(StringBuilder sb, String qid, String property, String datatype, String datavalue, Random random) {
+        sb.append("{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"").append(property)
+                .append("\",\"datavalue\":").append(datavalue)
+                .append(",\"datatype\":\"").append(datatype).append("\"},\"type\":\"statement\",\"id\":\"")
+                .append(qid).append('$').append(Long.toHexString(random.nextLong()))
+                .append("\",\"rank\":\"normal\",\"references\":[{\"hash\":\"").append(Long.toHexString(random.nextLong()))
+                .append("\",\"snaks\":{\"P143\":[{\"snaktype\":\"value\",\"property\":\"P143\",\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":48183,\"id\":\"Q48183\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"}]},\"snaks-order\":[\"P143\"]}]}");
+    }
+
+    private static String word(Random random) {
+        final char[] chars = new char[4 + random.nextInt(8)];
+        chars[0] = (char) ('A' + random.nextInt(26));
+        for (int i = 1; i < chars.length; ++i) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
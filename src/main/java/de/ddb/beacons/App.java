@@ -19,16 +19,35 @@
  */
 package de.ddb.beacons;
 
+import de.ddb.beacons.helpers.Checkpoint;
 import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.DeletionLog;
+import de.ddb.beacons.helpers.DumpPrefilter;
 import de.ddb.beacons.helpers.EntityFacts;
 import de.ddb.beacons.helpers.EntityTimerProcessor;
-import de.ddb.beacons.runners.BeaconGndImage;
-import de.ddb.beacons.runners.BeaconGndWikidata;
-import de.ddb.beacons.runners.BeaconGndWikipedia;
+import de.ddb.beacons.helpers.EntityTypeImporter;
+import de.ddb.beacons.helpers.ExternalSorter;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.helpers.GndItemBroker;
+import de.ddb.beacons.helpers.GndStateStore;
+import de.ddb.beacons.helpers.GndStateUpdater;
+import de.ddb.beacons.helpers.Metrics;
+import de.ddb.beacons.helpers.ParallelDumpProcessor;
+import de.ddb.beacons.helpers.PhaseStats;
+import de.ddb.beacons.helpers.ProcessorProfiler;
+import de.ddb.beacons.runners.Runner;
+import de.ddb.beacons.runners.RunnerFactory;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -39,10 +58,10 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessorBroker;
 import org.wikidata.wdtk.datamodel.interfaces.Sites;
 import org.wikidata.wdtk.dumpfiles.DumpContentType;
 import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
 
 /**
  *
@@ -61,8 +80,16 @@ public class App {
     public static void main(String[] args) throws IOException {
 
         final Options options = new Options();
+        boolean incremental = false;
+        boolean resume = false;
+        boolean offline = false;
         options.addOption("d", true, "Folder to stored all downloaded Wikidata dumps and entity type database (default: data/)");
         options.addOption("o", true, "Destination folder (default: beacons/)");
+        options.addOption("i", true, "Import entity types from a local GND dump (lobid-gnd JSON-LD or Entity Facts bulk file, may be gz/bz2 compressed) and exit");
+        options.addOption("R", "resume", false, "Continue an interrupted run at its last checkpoint");
+        options.addOption(null, "offline", false, "Use only the dumps in the data folder, don't download anything");
+        options.addOption("u", false, "Update the data of the last run with the daily dumps and write the BEACON files from it (incremental run)");
+        options.addOption("r", true, "Revalidate the given number of entity types which expire first at Entity Facts and exit");
         options.addOption("h", false, "Print help text");
         options.addOption("v", false, "Print version");
 
@@ -77,6 +104,10 @@ public class App {
                 Configuration.get().setValue("destDir", cmd.getOptionValue("o"));
             }
 
+            incremental = cmd.hasOption("u");
+            resume = cmd.hasOption("R");
+            offline = cmd.hasOption("offline");
+
             if (cmd.hasOption("h")) {
                 final HelpFormatter help = new HelpFormatter();
                 help.printHelp("java -Dlog.file=wkd2beacons.log -jar wkd2beacons.jar", options, true);
@@ -84,16 +115,44 @@ public class App {
             } else if (cmd.hasOption("v")) {
                 System.out.println("Version 1.2");
                 return;
+            } else if (cmd.hasOption("i")) {
+                final EntityTypeImporter importer = new EntityTypeImporter(
+                        ParallelDumpProcessor.getConfiguredWorkers(),
+                        ParallelDumpProcessor.getConfiguredChunkSize());
+                importer.importFile(Paths.get(cmd.getOptionValue("i")));
+                EntityFacts.get().save();
+                return;
+            } else if (cmd.hasOption("r")) {
+                try {
+                    EntityFacts.get().refresh(Integer.parseInt(cmd.getOptionValue("r")));
+                    EntityFacts.get().save();
+                } catch (NumberFormatException e) {
+                    LOG.error("{} is not a number.", cmd.getOptionValue("r"));
+                }
+                return;
             }
         } catch (ParseException e) {
             LOG.error(e.getLocalizedMessage());
         }
 
         final App app = new App();
-        app.run();
+        if (!app.run(incremental, resume, offline)) {
+            System.exit(1);
+        }
     }
 
-    private void run() throws IOException {
+    /**
+     * Writes all BEACON files.
+     *
+     * @param incremental <code>true</code> to apply the daily dumps to the
+     * GND state store of the last run instead of processing the full JSON dump
+     * @param resume <code>true</code> to continue a full run at its last
+     * checkpoint
+     * @param offline <code>true</code> to use the dumps in the data folder
+     * only
+     * @return <code>false</code> if the BEACON files could not be written
+     */
+    private boolean run(boolean incremental, boolean resume, boolean offline) throws IOException {
 
         final long start = System.currentTimeMillis();
         final File destDir = new File(Configuration.get().getValue("destDir"));
@@ -101,15 +160,15 @@ public class App {
         boolean folderExisted = destDir.exists() || destDir.mkdirs();
         if (!folderExisted) {
             LOG.error("Could not create directory {}", Configuration.get().getValue("destDir"));
-            return;
+            return false;
         }
 
-        // load EF database (if exist)
+        // open EF database (migrates an old entities-yyyyMMdd.db once)
         EntityFacts.get().load();
 
         // get site urls
         final DumpProcessingController dumpProcessingController = new DumpProcessingController("wikidatawiki");
-        dumpProcessingController.setOfflineMode(false);
+        dumpProcessingController.setOfflineMode(offline);
 
         // Use another download directory:
         dumpProcessingController.setDownloadDirectory(Configuration.get().getValue("dataDir"));
@@ -117,8 +176,49 @@ public class App {
         // Download the sites table dump and extract information
         final Sites sites = dumpProcessingController.getSitesInformation();
 
+        // runners and the properties they need from the dump
+        final List<RunnerFactory> runnerFactories = RunnerFactory.load();
+        final Set<String> properties = new TreeSet<>();
+        for (RunnerFactory runnerFactory : runnerFactories) {
+            properties.addAll(runnerFactory.getProperties());
+        }
+
+        // GND concordance: filled by the full dump or updated by the daily dumps
+        final GndStateStore gndStateStore = new GndStateStore();
+        final boolean hasProperties = gndStateStore.getProperties().containsAll(properties);
+        final String dumpDate;
+        if (incremental) {
+            if (gndStateStore.getDumpDate() == null) {
+                LOG.error("There is no complete run in the GND state store. Please run without -u first.");
+                gndStateStore.close();
+                return false;
+            }
+            if (!hasProperties) {
+                LOG.error("The GND state store lacks properties {} needs. Please run without -u first.", properties);
+                gndStateStore.close();
+                return false;
+            }
+            dumpDate = applyDailyDumps(dumpProcessingController, gndStateStore, offline);
+        } else {
+            dumpDate = dumpProcessingController.getWmfDumpFileManager().findMostRecentDump(DumpContentType.JSON).getDateStamp();
+            if (resume && hasProperties && dumpDate.equals(gndStateStore.getDumpDate())) {
+                LOG.info("Dump {} is already in the GND state store. Writing the BEACON files only.", dumpDate);
+            } else {
+                if (resume && !hasProperties) {
+                    LOG.warn("The GND state store lacks properties {} needs. Starting at the beginning.", properties);
+                }
+                if (!processFullDump(dumpProcessingController, gndStateStore, dumpDate, resume && hasProperties, properties)) {
+                    // keep the BEACON files of the last complete run
+                    LOG.error("Dump {} was not processed completely. Not writing the BEACON files, continue with --resume.", dumpDate);
+                    gndStateStore.close();
+                    EntityFacts.get().save();
+                    return false;
+                }
+            }
+        }
+
         // get timestamp and format it as ISO
-        String timestamp = dumpProcessingController.getWmfDumpFileManager().findMostRecentDump(DumpContentType.JSON).getDateStamp();
+        String timestamp = dumpDate;
 
         final SimpleDateFormat parser = new SimpleDateFormat("yyyyMMdd");
         Date date = null;
@@ -133,23 +233,50 @@ public class App {
             timestamp = formatter.format(date);
         }
 
-        final BeaconGndImage bgi = new BeaconGndImage(sites, timestamp);
-        final BeaconGndWikidata bgwd = new BeaconGndWikidata(timestamp);
-        final BeaconGndWikipedia bgwp = new BeaconGndWikipedia(sites, timestamp);
-
-        final EntityDocumentProcessorBroker edpb = new EntityDocumentProcessorBroker();
-        edpb.registerEntityDocumentProcessor(bgi);
-        edpb.registerEntityDocumentProcessor(bgwd);
-        edpb.registerEntityDocumentProcessor(bgwp);
+        final PhaseStats exportPhase = PhaseStats.start("export");
+        final List<Runner> runners = new ArrayList<>();
+        for (RunnerFactory runnerFactory : runnerFactories) {
+            runners.addAll(runnerFactory.createRunners(sites, timestamp));
+        }
 
-        // run that shit! ;)
-        processEntitiesFromWikidataDump(dumpProcessingController, edpb);
+        // export phase: hands every item of the store to all runners
+        final GndItemBroker gib = new GndItemBroker();
+        for (Runner runner : runners) {
+            gib.registerGndItemProcessor(runner);
+        }
+        final long exported = gndStateStore.export(gib);
 
-        // shutdown
+        // shutdown (the image runner may still wait for entity types)
+        for (Runner runner : runners) {
+            runner.close();
+        }
+        gndStateStore.close();
         EntityFacts.get().save();
-        bgi.close();
-        bgwd.close();
-        bgwp.close();
+        exportPhase.end(exported, "items");
+
+        // optional: sort by GND ID, remove duplicates and report conflicts
+        if (Boolean.parseBoolean(Configuration.get().getValue("sortOutput"))) {
+            final List<Path> outputFiles = new ArrayList<>();
+            for (Runner runner : runners) {
+                outputFiles.addAll(runner.getOutputFiles());
+            }
+            final PhaseStats sortPhase = PhaseStats.start("sort");
+            try {
+                ExternalSorter.sortAll(outputFiles);
+            } catch (IOException e) {
+                LOG.error("Could not sort the output files. {}", e.getMessage());
+            }
+            sortPhase.end(outputFiles.size(), "files");
+        }
+
+        if (ProcessorProfiler.isEnabled()) {
+            ProcessorProfiler.logSummary();
+        }
+        try {
+            Metrics.get().writeReport(Paths.get(destDir.getPath(), dumpDate + "-metrics.json"));
+        } catch (IOException e) {
+            LOG.error("Could not write metrics report. {}", e.getMessage());
+        }
 
         final long duration = System.currentTimeMillis() - start;
 
@@ -158,18 +285,125 @@ public class App {
                 TimeUnit.MILLISECONDS.toMinutes(duration) % TimeUnit.HOURS.toMinutes(1),
                 TimeUnit.MILLISECONDS.toSeconds(duration) % TimeUnit.MINUTES.toSeconds(1)
         ));
+        return true;
+    }
+
+    /**
+     * Processes the full JSON dump into the GND state store. Checkpoints are
+     * written every checkpointInterval MiB of the decompressed dump, so an
+     * interrupted run can be resumed. The further properties the runners need
+     * are extracted in the same pass.
+     *
+     * @return <code>true</code> if the whole dump was processed; otherwise the
+     * checkpoint is kept for <code>--resume</code>
+     */
+    private boolean processFullDump(DumpProcessingController dumpProcessingController, GndStateStore gndStateStore, String dumpDate, boolean resume, Set<String> properties) throws IOException {
+        final Checkpoint checkpoint = resume ? Checkpoint.load() : null;
+        long startOffset = 0;
+        if (checkpoint != null && dumpDate.equals(checkpoint.getDumpDate())) {
+            LOG.info("Resuming dump {} at {} MiB.", dumpDate, checkpoint.getOffset() >> 20);
+            startOffset = checkpoint.getOffset();
+        } else {
+            if (resume) {
+                LOG.warn("There is no checkpoint for dump {}. Starting at the beginning.", dumpDate);
+            }
+            Checkpoint.delete();
+            gndStateStore.clear();
+            gndStateStore.setProperties(properties);
+        }
+
+        // all items before the offset (with the entity types requested for
+        // them) are committed before the checkpoint is written
+        final GndStateUpdater gndStateUpdater = new GndStateUpdater(gndStateStore);
+        final ParallelDumpProcessor.CheckpointListener checkpointListener = offset -> {
+            gndStateUpdater.awaitEntityTypes();
+            gndStateStore.commit();
+            EntityFacts.get().commit();
+            new Checkpoint(dumpDate, offset).save();
+        };
+
+        // run that shit! ;)
+        final PhaseStats dumpPhase = PhaseStats.start("dump");
+        final boolean complete = processEntitiesFromWikidataDump(dumpProcessingController, checkpointListener, startOffset, gndStateUpdater);
+        gndStateUpdater.finish();
+        dumpPhase.end(gndStateUpdater.getUpdated(), "GND items");
+        if (complete) {
+            gndStateStore.setDumpDate(dumpDate);
+            Checkpoint.delete();
+        }
+        return complete;
+    }
+
+    /**
+     * Applies all daily dumps after the last applied dump to the GND state
+     * store and removes the items deleted in the meantime. Stops at the first
+     * daily dump which is not available (or whose deletions can't be read),
+     * because the following ones can't be applied without it.
+     *
+     * @return the date of the last applied dump
+     */
+    private String applyDailyDumps(DumpProcessingController dumpProcessingController, GndStateStore gndStateStore, boolean offline) {
+        final String lastDumpDate = gndStateStore.getDumpDate();
+        final List<MwDumpFile> dailies = new ArrayList<>(dumpProcessingController.getWmfDumpFileManager().findAllDumps(DumpContentType.DAILY));
+        dailies.removeIf(daily -> daily.getDateStamp().compareTo(lastDumpDate) <= 0);
+        dailies.sort(Comparator.comparing(MwDumpFile::getDateStamp));
+        LOG.info("Last applied dump is from {}. Found {} newer daily dump(s).", lastDumpDate, dailies.size());
+
+        final PhaseStats dailiesPhase = PhaseStats.start("dailies");
+        final GndStateUpdater gndStateUpdater = new GndStateUpdater(gndStateStore);
+        dumpProcessingController.registerEntityDocumentProcessor(ProcessorProfiler.wrap(gndStateUpdater), null, true);
+
+        final DeletionLog deletionLog = offline ? null : new DeletionLog();
+        if (offline && !dailies.isEmpty()) {
+            LOG.warn("Offline mode: the deletion log can't be read, deleted items stay in the GND state store until the next full run.");
+        }
+        long deleted = 0;
+        String dumpDate = lastDumpDate;
+        for (MwDumpFile daily : dailies) {
+            if (!daily.isAvailable()) {
+                LOG.warn("Daily dump {} is not available. Stopping here.", daily.getDateStamp());
+                break;
+            }
+            final Set<String> deletedQids;
+            try {
+                deletedQids = deletionLog == null ? Set.of() : deletionLog.getDeletedItems(dumpDate, daily.getDateStamp());
+            } catch (IOException e) {
+                LOG.error("Could not read the deletion log up to {}. Stopping here. {}", daily.getDateStamp(), e.getMessage());
+                break;
+            }
+            LOG.info("Applying daily dump {}...", daily.getDateStamp());
+            dumpProcessingController.processDump(daily);
+            for (String qid : deletedQids) {
+                if (gndStateStore.remove(qid)) {
+                    ++deleted;
+                }
+            }
+            dumpDate = daily.getDateStamp();
+            gndStateStore.setDumpDate(dumpDate);
+        }
+        Metrics.get().counter("state.deleted").add(deleted);
+        LOG.info("Removed {} deleted item(s) from the GND state store.", deleted);
+        gndStateUpdater.finish();
+        dailiesPhase.end(gndStateUpdater.getUpdated(), "GND items");
+        return dumpDate;
     }
 
     /**
      * Processes all entities in a Wikidata dump using the given entity
-     * processor. By default, the most recent JSON dump will be used. In offline
-     * mode, only the most recent previously downloaded file is considered.
+     * processors. By default, the most recent JSON dump will be used. In
+     * offline mode, only the most recent previously downloaded file is
+     * considered.
      *
      * @param dumpProcessingController
-     * @param entityDocumentProcessor the object to use for processing entities
-     * in this dump
+     * @param checkpointListener is told how far the dump was processed (only
+     * with dumpWorkers &gt; 0)
+     * @param startOffset offset in the decompressed dump to start at (only
+     * with dumpWorkers &gt; 0)
+     * @param entityDocumentProcessors the objects to use for processing
+     * entities in this dump
+     * @return <code>true</code> if the whole dump was processed
      */
-    private void processEntitiesFromWikidataDump(DumpProcessingController dumpProcessingController, EntityDocumentProcessor entityDocumentProcessor) throws IOException {
+    private boolean processEntitiesFromWikidataDump(DumpProcessingController dumpProcessingController, ParallelDumpProcessor.CheckpointListener checkpointListener, long startOffset, EntityDocumentProcessor... entityDocumentProcessors) throws IOException {
 
         // Should we process historic revisions or only current ones?
         boolean onlyCurrentRevisions;
@@ -186,13 +420,45 @@ public class App {
                 onlyCurrentRevisions = true;
         }
 
-        // Subscribe to the most recent entity documents of type wikibase item:
-        dumpProcessingController.registerEntityDocumentProcessor(entityDocumentProcessor, null, onlyCurrentRevisions);
-
         // Also add a timer that reports some basic progress information:
         EntityTimerProcessor entityTimerProcessor = new EntityTimerProcessor(TIMEOUT_SEC);
+
+        // JSON dumps can be deserialized by several threads
+        final int workers = ParallelDumpProcessor.getConfiguredWorkers();
+        if (DUMP_FILE_MODE == DumpProcessingMode.JSON && workers > 0) {
+            final ParallelDumpProcessor parallelDumpProcessor = new ParallelDumpProcessor(workers, ParallelDumpProcessor.getConfiguredChunkSize());
+            for (EntityDocumentProcessor entityDocumentProcessor : entityDocumentProcessors) {
+                parallelDumpProcessor.registerEntityDocumentProcessor(ProcessorProfiler.wrap(entityDocumentProcessor));
+            }
+            parallelDumpProcessor.registerEntityDocumentProcessor(entityTimerProcessor);
+            // all runners need the GND ID
+            parallelDumpProcessor.setPrefilter(DumpPrefilter.fromConfiguration(GndItem.GND_PROP));
+            parallelDumpProcessor.setStartOffset(startOffset);
+            parallelDumpProcessor.setCheckpointListener(checkpointListener, (long) Configuration.get().getIntValue("checkpointInterval", 2048) << 20);
+            boolean complete = false;
+            try {
+                parallelDumpProcessor.processMostRecentJsonDump(dumpProcessingController, Configuration.get().getValue("dataDir"));
+                complete = true;
+            } catch (EntityTimerProcessor.TimeoutException e) {
+                // The timer caused a time out. Continue and finish normally.
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Error processing data dump", e);
+            }
+            entityTimerProcessor.stop();
+            return complete;
+        }
+
+        if (startOffset > 0) {
+            LOG.warn("Checkpoints need dumpWorkers > 0. Processing the whole dump again.");
+        }
+
+        // Subscribe to the most recent entity documents of type wikibase item:
+        for (EntityDocumentProcessor entityDocumentProcessor : entityDocumentProcessors) {
+            dumpProcessingController.registerEntityDocumentProcessor(ProcessorProfiler.wrap(entityDocumentProcessor), null, onlyCurrentRevisions);
+        }
         dumpProcessingController.registerEntityDocumentProcessor(entityTimerProcessor, null, onlyCurrentRevisions);
 
+        boolean complete = false;
         try {
             // Start processing (may trigger downloads where needed):
             switch (DUMP_FILE_MODE) {
@@ -202,6 +468,7 @@ public class App {
                 case JUST_ONE_MAIN_FOR_TEST -> dumpProcessingController.processMostRecentMainDump();
                 default -> throw new RuntimeException("Unsupported dump processing type " + DUMP_FILE_MODE);
             }
+            complete = true;
         } catch (EntityTimerProcessor.TimeoutException e) {
             // The timer caused a time out. Continue and finish normally.
         } catch (RuntimeException e) {
@@ -210,5 +477,6 @@ public class App {
 
         // Print final timer results:
         entityTimerProcessor.stop();
+        return complete;
     }
 }
@@ -38,7 +38,7 @@ import org.springframework.context.annotation.Bean;
 public class CommonsLicensesApp {
 
     private final String MAP_GND2FILE = "gnd2file";
-    private final String MAP_FILE2GNDS = "file2gnds";
+    private final String MAP_FILE2GNDS = "file2gnd";
     private final String MAP_GND2LIC = "gnd2license";
 
     private MVStore store;
@@ -21,19 +21,27 @@ package de.ddb.beacons;
 
 // File: CommonsLicensesMVOnly.java
 // MVStore-only Pipeline mit Lombok-Logging (@Slf4j)
+import de.ddb.beacons.helpers.BloomFilter;
+import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.DumpStreams;
+import de.ddb.beacons.helpers.LineChunker;
+import de.ddb.beacons.helpers.MVStoreBulkLoader;
+import de.ddb.beacons.helpers.ParallelDumpProcessor;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.h2.mvstore.*;
 import org.h2.mvstore.type.StringDataType;
-import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.util.*;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -42,8 +50,23 @@ import okhttp3.Response;
 public class CommonsLicensesMVOnly {
 
     static final String MAP_GND2FILE = "gnd2file";
-    static final String MAP_FILE2GNDS = "file2gnds";
+    // mehrwertiger Reverse-Index: ein Key je (Datei, GND), Wert leer
+    static final String MAP_FILE2GNDS = "file2gnd";
+    // alter Reverse-Index mit ";"-verketteten GND-IDs
+    static final String MAP_FILE2GNDS_LEGACY = "file2gnds";
     static final String MAP_GND2LIC = "gnd2license";
+    // trennt Datei und GND-ID im Key, sortiert vor allen Zeichen
+    static final char REV_SEP = '\u0000';
+    // Bloom-Filter über die Dateien in file2gnd: <store>.bloom, passende Build-ID in meta
+    static final String MAP_META = "meta";
+    static final String KEY_BLOOM_ID = "file2gnd.bloom";
+    static final double BLOOM_FPP = 0.01;
+    static final LongAdder BLOOM_REJECTED = new LongAdder();
+    // FNV-1a über die Zeichen des kanonischen Dateinamens
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+    // Pfad der Item-ID in einem Statement
+    static final String[] ITEM_ID_PATH = {"mainsnak", "datavalue", "value", "id"};
 
     public static void main(String[] args) throws Exception {
         if (args.length < 2) {
@@ -71,18 +94,21 @@ public class CommonsLicensesMVOnly {
         }
     }
 
-    // Reverse-Index: gnd2file -> file2gnds
-    static void buildRev(String storePath) {
-        try (MVStore store = new MVStore.Builder().fileName(storePath).open()) {
+    // Reverse-Index: gnd2file -> file2gnd (Keys "<datei>\0<gnd>", doppelte Paare fallen von selbst weg)
+    // Bulk-Load: Paare sortiert in eine frische Map, die die alte ersetzt
+    static void buildRev(String storePath) throws IOException {
+        long start = System.currentTimeMillis();
+        try (MVStore store = new MVStore.Builder().fileName(storePath).open();
+                MVStoreBulkLoader file2gnds = bulkLoader(store, storePath, MAP_FILE2GNDS, false)) {
             MVMap<String, String> gnd2file = openStrMap(store, MAP_GND2FILE);
-            MVMap<String, String> file2gnds = openStrMap(store, MAP_FILE2GNDS);
-            file2gnds.clear();
+            if (store.hasMap(MAP_FILE2GNDS_LEGACY)) {
+                store.removeMap(MAP_FILE2GNDS_LEGACY);
+            }
 
-            long n = 0;
             for (var e : gnd2file.entrySet()) {
                 String gnd = e.getKey();
                 String fn = e.getValue();
-                if (gnd == null || fn == null || fn.isBlank()) {
+                if (gnd == null || gnd.isBlank() || fn == null || fn.isBlank()) {
                     continue;
                 }
 
@@ -91,98 +117,401 @@ public class CommonsLicensesMVOnly {
                     continue;
                 }
 
-                String prev = file2gnds.get(key);
-                if (prev == null || prev.isEmpty()) {
-                    file2gnds.put(key, gnd);
-                } else if (!containsId(prev, gnd)) {
-                    file2gnds.put(key, prev + ";" + gnd);
-                }
-
-                if (++n % 100_000 == 0) {
-                    store.commit();
-                }
+                file2gnds.add(revKey(key, gnd), "");
             }
-            store.commit();
-            log.info("Build-Rev fertig. file2gnds keys={}", file2gnds.sizeAsLong());
+            long pairs = file2gnds.finish();
+            log.info("Build-Rev fertig. file2gnd (Datei, GND)-Paare={}", pairs);
+            buildBloom(store, storePath);
         }
+        logStoreSize("Build-Rev", storePath, start);
     }
 
-    // Dump joinen -> gnd2license schreiben
+    // Bloom-Filter aus den Keys von file2gnd (der Key-Präfix ist schon kanonisch)
+    static void buildBloom(MVStore store, String storePath) throws IOException {
+        MVMap<String, String> file2gnds = openStrMap(store, MAP_FILE2GNDS);
+        BloomFilter bloom = new BloomFilter(file2gnds.sizeAsLong(), BLOOM_FPP);
+        for (String k : file2gnds.keySet()) {
+            bloom.put(hashKey(k, k.indexOf(REV_SEP)));
+        }
+        String id = UUID.randomUUID().toString();
+        bloom.save(bloomPath(storePath), id);
+        openStrMap(store, MAP_META).put(KEY_BLOOM_ID, id);
+        store.commit();
+        log.info("Bloom-Filter {} geschrieben ({} KiB)", bloomPath(storePath), bloom.getSize() >> 10);
+    }
+
+    static BloomFilter loadBloom(MVStore store, String storePath) throws IOException {
+        String id = store.hasMap(MAP_META) ? openStrMap(store, MAP_META).get(KEY_BLOOM_ID) : null;
+        BloomFilter bloom = id == null ? null : BloomFilter.load(bloomPath(storePath), id);
+        if (bloom == null) {
+            log.warn("Kein passender Bloom-Filter {}. Erst build-rev ausführen, bis dahin ohne.", bloomPath(storePath));
+        }
+        return bloom;
+    }
+
+    static Path bloomPath(String storePath) {
+        return Paths.get(storePath + ".bloom");
+    }
+
+    // Dump joinen -> gnd2license schreiben (Bulk-Load, bestehende Einträge bleiben, neuere gewinnen)
     static void join(String storePath, String dumpPath) throws Exception {
         ObjectMapper om = new ObjectMapper();
         JsonFactory jf = om.getFactory();
+        long start = System.currentTimeMillis();
 
-        try (MVStore store = new MVStore.Builder().fileName(storePath).open()) {
+        try (MVStore store = new MVStore.Builder().fileName(storePath).open();
+                MVStoreBulkLoader gnd2lic = bulkLoader(store, storePath, MAP_GND2LIC, true)) {
             MVMap<String, String> file2gnds = openStrMap(store, MAP_FILE2GNDS);
             if (file2gnds.isEmpty()) {
-                die("file2gnds ist leer. Erst build-rev ausführen.");
+                die("file2gnd ist leer. Erst build-rev ausführen.");
             }
-            MVMap<String, String> gnd2lic = openStrMap(store, MAP_GND2LIC);
 
-            long seen = 0, writes = 0;
+            BloomFilter bloom = loadBloom(store, storePath);
+            long[] stats;
+            int workers = ParallelDumpProcessor.getConfiguredWorkers();
             try (InputStream raw = openMaybeCompressed(dumpPath);
-                    InputStream in = new BufferedInputStream(raw, 1 << 20);
-                    JsonParser p = jf.createParser(in)) {
+                    BufferedInputStream in = new BufferedInputStream(raw, 1 << 20)) {
+                stats = workers > 0 && oneObjectPerLine(in)
+                        ? joinParallel(in, jf, file2gnds, bloom, gnd2lic, workers, ParallelDumpProcessor.getConfiguredChunkSize())
+                        : joinSequential(in, jf, file2gnds, bloom, gnd2lic);
+            }
+            long seen = stats[0], writes = stats[1];
+            long size = gnd2lic.finish();
+            log.info("Join fertig. seen={} writes={} gnd2license={} bloomRejected={}", seen, writes, size, BLOOM_REJECTED.sum());
+        }
+        logStoreSize("Join", storePath, start);
+    }
 
-                JsonToken t = p.nextToken();
-                if (t == JsonToken.START_ARRAY) {
-                    while (p.nextToken() != JsonToken.END_ARRAY) {
-                        writes += processOne(om.readTree(p), file2gnds, gnd2lic);
+    // Ein Thread liest und parst alles (beliebiges JSON-Array oder NDJSON)
+    static long[] joinSequential(InputStream in, JsonFactory jf, MVMap<String, String> file2gnds, BloomFilter bloom, MVStoreBulkLoader gnd2lic) throws IOException {
+        long seen = 0, writes = 0;
+        try (JsonParser p = jf.createParser(in)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_ARRAY) {
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                    if (t != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    writes += processOne(p, file2gnds, bloom, gnd2lic);
+                    if (++seen % 50_000 == 0) {
+                        log.info("seen={} writes={}", seen, writes);
+                    }
+                }
+            } else {
+                while (t != null) {
+                    if (t == JsonToken.START_OBJECT) {
+                        writes += processOne(p, file2gnds, bloom, gnd2lic);
                         if (++seen % 50_000 == 0) {
-                            store.commit();
                             log.info("seen={} writes={}", seen, writes);
                         }
                     }
-                } else {
-                    while (t != null) {
-                        if (t == JsonToken.START_OBJECT) {
-                            writes += processOne(om.readTree(p), file2gnds, gnd2lic);
-                            if (++seen % 50_000 == 0) {
-                                store.commit();
-                                log.info("seen={} writes={}", seen, writes);
-                            }
-                        }
-                        t = p.nextToken();
+                    t = p.nextToken();
+                }
+            }
+        }
+        return new long[]{seen, writes};
+    }
+
+    // Ein Leser schneidet zeilenweise Chunks (NDJSON oder Dump-Array mit einem Objekt je Zeile),
+    // N Worker parsen und fragen file2gnd ab, dieser Thread schreibt die Treffer in Chunk-Reihenfolge
+    // (gleiche Last-Writer-Semantik wie sequentiell).
+    static long[] joinParallel(InputStream in, JsonFactory jf, MVMap<String, String> file2gnds, BloomFilter bloom, MVStoreBulkLoader gnd2lic,
+            int workers, int chunkSize) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "join-worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Map<String, WorkerStats> workerStats = new ConcurrentHashMap<>();
+        // begrenzt, damit der Leser nicht davonläuft
+        BlockingQueue<Future<Batch>> pending = new ArrayBlockingQueue<>(workers * 4);
+        Future<Batch> endOfDump = CompletableFuture.completedFuture(null);
+        AtomicReference<IOException> readError = new AtomicReference<>();
+        LineChunker chunker = new LineChunker(in, chunkSize);
+        long start = System.currentTimeMillis();
+
+        Thread reader = new Thread(() -> {
+            try {
+                LineChunker.Chunk chunk;
+                while ((chunk = chunker.next()) != null) {
+                    LineChunker.Chunk job = chunk;
+                    pending.put(pool.submit(() -> extractChunk(job, jf, file2gnds, bloom, workerStats)));
+                }
+            } catch (IOException ex) {
+                readError.set(ex);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            try {
+                pending.put(endOfDump);
+            } catch (InterruptedException ex) {
+                // abgebrochen
+            }
+        }, "join-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long seen = 0, writes = 0;
+        try {
+            while (true) {
+                Future<Batch> f = pending.take();
+                if (f == endOfDump) {
+                    break;
+                }
+                Batch batch = f.get();
+                for (Match m : batch.matches) {
+                    for (String gnd : m.gnds) {
+                        gnd2lic.add(gnd, m.valueJson);
                     }
+                    writes += m.gnds.size();
+                }
+                long before = seen;
+                seen += batch.seen;
+                if (seen / 50_000 != before / 50_000) {
+                    log.info("seen={} writes={}", seen, writes);
                 }
             }
-            store.commit();
-            log.info("Join fertig. seen={} writes={} gnd2license={}", seen, writes, gnd2lic.sizeAsLong());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Join unterbrochen.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException("Join fehlgeschlagen.", ex.getCause());
+        } finally {
+            reader.interrupt();
+            pool.shutdownNow();
+        }
+        if (readError.get() != null) {
+            throw readError.get();
         }
+
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Join: {} MiB gelesen, {} Objekte/s", chunker.getBytesRead() >> 20, seen * 1000 / millis);
+        new TreeMap<>(workerStats).forEach((name, ws) -> log.info("{}: seen={} writes={} ({} Objekte/s beschäftigt)",
+                name, ws.seen, ws.writes, ws.seen * 1_000_000_000L / Math.max(1, ws.nanos)));
+        return new long[]{seen, writes};
     }
 
-    // Ein Mediainfo-Objekt verarbeiten
-    static long processOne(JsonNode node, MVMap<String, String> file2gnds, MVMap<String, String> gnd2lic) {
-        JsonNode titleN = node.get("title");
-        if (titleN == null || titleN.isNull()) {
-            return 0;
+    // Erste Zeile "[" (Dump-Array) oder ein Objekt (NDJSON)? Sonst geht nur sequentiell.
+    static boolean oneObjectPerLine(BufferedInputStream in) throws IOException {
+        in.mark(1 << 20);
+        try {
+            int b;
+            int n = 0;
+            do {
+                b = in.read();
+            } while (b >= 0 && b <= ' ' && b != '\n' && ++n < 1 << 20);
+            if (b == '{') {
+                return true;
+            }
+            if (b != '[') {
+                return false;
+            }
+            do {
+                b = in.read();
+            } while (b >= 0 && b <= ' ' && b != '\n' && ++n < 1 << 20);
+            return b == '\n';
+        } finally {
+            in.reset();
         }
-        String title = titleN.asText();
-        String key = canon(stripNamespace(title));
-        if (key == null) {
-            return 0;
+    }
+
+    static Batch extractChunk(LineChunker.Chunk chunk, JsonFactory jf, MVMap<String, String> file2gnds, BloomFilter bloom,
+            Map<String, WorkerStats> workerStats) throws IOException {
+        long t0 = System.nanoTime();
+        Batch batch = new Batch();
+        chunk.forEachLine((data, offset, length) -> {
+            int from = offset;
+            int to = offset + length;
+            // Leerraum und Komma zwischen den Array-Elementen entfernen
+            while (from < to && data[from] <= ' ') {
+                from++;
+            }
+            while (to > from && (data[to - 1] <= ' ' || data[to - 1] == ',')) {
+                to--;
+            }
+            if (to - from <= 1) {
+                return; // Leerzeile, '[' oder ']'
+            }
+            if (data[from] != '{') {
+                throw new IOException("Kein Objekt je Zeile. Mit dumpWorkers=0 sequentiell joinen.");
+            }
+            try (JsonParser p = jf.createParser(data, from, to - from)) {
+                p.nextToken();
+                Match m = extract(p, file2gnds, bloom);
+                if (m != null) {
+                    batch.matches.add(m);
+                }
+            }
+            batch.seen++;
+        });
+        WorkerStats ws = workerStats.computeIfAbsent(Thread.currentThread().getName(), k -> new WorkerStats());
+        ws.seen += batch.seen;
+        for (Match m : batch.matches) {
+            ws.writes += m.gnds.size();
         }
+        ws.nanos += System.nanoTime() - t0;
+        return batch;
+    }
+
+    // Ergebnis eines Chunks
+    static final class Batch {
 
-        String gnds = file2gnds.get(key);
-        if (gnds == null) {
+        final List<Match> matches = new ArrayList<>();
+        long seen;
+    }
+
+    // Zähler eines Workers (nur von diesem Thread geschrieben)
+    static final class WorkerStats {
+
+        volatile long seen;
+        volatile long writes;
+        volatile long nanos;
+    }
+
+    // Ein Mediainfo-Objekt verarbeiten (p steht auf START_OBJECT, danach auf dessen END_OBJECT)
+    static long processOne(JsonParser p, MVMap<String, String> file2gnds, BloomFilter bloom, MVStoreBulkLoader gnd2lic) throws IOException {
+        Match m = extract(p, file2gnds, bloom);
+        if (m == null) {
             return 0;
         }
+        for (String gnd : m.gnds) {
+            gnd2lic.add(gnd, m.valueJson);
+        }
+        return m.gnds.size();
+    }
 
-        JsonNode stmts = node.get("statements");
-        String lic = dedupJoin(extractItemIds(stmts, "P275"));
-        String st = dedupJoin(extractItemIds(stmts, "P6216"));
-        String valueJson = toJsonValue(stripNamespace(title), lic, st);
+    // Streaming auf Token-Ebene: erst title prüfen, bei Fehlschlag den Rest überspringen,
+    // sonst nur statements.P275/P6216 lesen. Kein JsonNode-Baum je Objekt.
+    // Der Bloom-Filter (optional) verwirft fast alle Titel direkt auf dem Zeichenpuffer des Parsers.
+    static Match extract(JsonParser p, MVMap<String, String> file2gnds, BloomFilter bloom) throws IOException {
+        String title = null;
+        List<String> gnds = null;
+        boolean miss = false;
+        List<String> lic = new ArrayList<>(2);
+        List<String> st = new ArrayList<>(2);
+        JsonNode stmtsTree = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (miss) {
+                p.skipChildren();
+            } else if ("title".equals(field)) {
+                if (t != JsonToken.VALUE_STRING) {
+                    p.skipChildren();
+                    miss = true;
+                    continue;
+                }
+                if (bloom != null) {
+                    long h = canonHash(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+                    if (h == 0 || !bloom.mightContain(h)) {
+                        BLOOM_REJECTED.increment();
+                        miss = true;
+                        continue;
+                    }
+                }
+                title = p.getText();
+                String key = canon(stripNamespace(title));
+                gnds = key == null ? List.of() : findGnds(file2gnds, key);
+                miss = gnds.isEmpty();
+            } else if ("statements".equals(field) && t == JsonToken.START_OBJECT) {
+                if (title == null) {
+                    // ungewöhnliche Reihenfolge: title kommt erst danach
+                    stmtsTree = p.readValueAsTree();
+                } else {
+                    readStatements(p, lic, st);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (miss || title == null) {
+            return null;
+        }
+        if (stmtsTree != null) {
+            lic = extractItemIds(stmtsTree, "P275");
+            st = extractItemIds(stmtsTree, "P6216");
+        }
+        return new Match(gnds, toJsonValue(stripNamespace(title), dedupJoin(lic), dedupJoin(st)));
+    }
+
+    // GND-IDs einer Datei aus den Keys "<datei>\0<gnd>"
+    static List<String> findGnds(MVMap<String, String> file2gnds, String key) {
+        String prefix = key + REV_SEP;
+        Cursor<String, String> c = file2gnds.cursor(prefix);
+        List<String> out = null;
+        while (c.hasNext()) {
+            String k = c.next();
+            if (!k.startsWith(prefix)) {
+                break;
+            }
+            if (out == null) {
+                out = new ArrayList<>(1);
+            }
+            out.add(k.substring(prefix.length()));
+        }
+        return out == null ? List.of() : out;
+    }
 
-        long writes = 0;
-        for (String gnd : gnds.split(";")) {
-            String k = gnd.trim();
-            if (k.isEmpty()) {
+    // p steht auf dem START_OBJECT von statements
+    static void readStatements(JsonParser p, List<String> lic, List<String> st) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String pid = p.currentName();
+            JsonToken t = p.nextToken();
+            List<String> out = "P275".equals(pid) ? lic : "P6216".equals(pid) ? st : null;
+            if (out == null || t != JsonToken.START_ARRAY) {
+                p.skipChildren();
                 continue;
             }
-            gnd2lic.put(k, valueJson);
-            writes++;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (t == JsonToken.START_OBJECT) {
+                    String id = readPath(p, ITEM_ID_PATH, 0);
+                    if (id != null) {
+                        out.add(id);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Wert unter path[i..] lesen (p steht auf START_OBJECT), der Rest des Objekts wird übersprungen
+    static String readPath(JsonParser p, String[] path, int i) throws IOException {
+        String found = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if (found != null || !path[i].equals(name)) {
+                p.skipChildren();
+            } else if (i == path.length - 1) {
+                if (t.isScalarValue() && t != JsonToken.VALUE_NULL) {
+                    found = p.getText();
+                }
+            } else if (t == JsonToken.START_OBJECT) {
+                found = readPath(p, path, i + 1);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    // Treffer eines Mediainfo-Objekts: betroffene GND-IDs und der gnd2license-Wert
+    static final class Match {
+
+        final List<String> gnds;
+        final String valueJson;
+
+        Match(List<String> gnds, String valueJson) {
+            this.gnds = gnds;
+            this.valueJson = valueJson;
         }
-        return writes;
     }
 
     // NDJSON exportieren
@@ -312,6 +641,18 @@ public class CommonsLicensesMVOnly {
                 .keyType(StringDataType.INSTANCE).valueType(StringDataType.INSTANCE));
     }
 
+    // Läufe landen neben dem Store, Speicher wie beim Sortieren der BEACON-Dateien (sortMemory MiB)
+    static MVStoreBulkLoader bulkLoader(MVStore store, String storePath, String mapName, boolean keepExisting) {
+        Path dir = Paths.get(storePath).toAbsolutePath().getParent();
+        long memory = (long) Configuration.get().getIntValue("sortMemory", 512) << 20;
+        return new MVStoreBulkLoader(store, mapName, memory, dir, keepExisting);
+    }
+
+    static void logStoreSize(String step, String storePath, long start) throws IOException {
+        log.info("{}: {} s, Store {} MiB", step, (System.currentTimeMillis() - start) / 1000,
+                Files.size(Paths.get(storePath)) >> 20);
+    }
+
     static List<String> extractItemIds(JsonNode stmts, String pid) {
         List<String> out = new ArrayList<>(2);
         if (stmts == null || !stmts.has(pid)) {
@@ -331,6 +672,77 @@ public class CommonsLicensesMVOnly {
                 + "\"}";
     }
 
+    // 64-Bit-Hash von canon(stripNamespace(title)) ohne Zwischen-Strings, 0 = kein Key.
+    // Dieselben Schritte wie dort, nur auf Indizes; Sonderfälle von toLowerCase gehen über die Strings.
+    static long canonHash(char[] c, int off, int len) {
+        int from = off, to = off + len;
+        int idx = indexOf(c, from, to, ':');
+        if (idx > from && idx - from < 20) {
+            from = idx + 1;
+        }
+        while (from < to && c[from] <= ' ') {
+            from++;
+        }
+        while (to > from && c[to - 1] <= ' ') {
+            to--;
+        }
+        idx = indexOf(c, from, to, ':');
+        if (idx > from && idx - from < 20) {
+            from = idx + 1;
+        }
+        while (from < to && canonChar(c[from]) <= ' ') {
+            from++;
+        }
+        while (to > from && canonChar(c[to - 1]) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return 0;
+        }
+        long h = FNV_OFFSET;
+        for (int i = from; i < to; i++) {
+            char ch = c[i];
+            if (ch == '\u0130' || ch == '\u03A3' || Character.isSurrogate(ch)) {
+                String key = canon(stripNamespace(new String(c, off, len)));
+                return key == null ? 0 : hashKey(key, key.length());
+            }
+            h = (h ^ Character.toLowerCase(canonChar(ch))) * FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    // Hash der ersten len Zeichen eines kanonischen Keys (passend zu canonHash)
+    static long hashKey(String key, int len) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < len; i++) {
+            h = (h ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    // Finalizer von MurmurHash3, damit beide Hälften für den Bloom-Filter taugen; nie 0
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    static char canonChar(char ch) {
+        return ch == '\u00A0' || ch == '_' ? ' ' : ch;
+    }
+
+    static int indexOf(char[] c, int from, int to, char ch) {
+        for (int i = from; i < to; i++) {
+            if (c[i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     static String canon(String name) {
         if (name == null) {
             return null;
@@ -351,21 +763,8 @@ public class CommonsLicensesMVOnly {
         return title.trim();
     }
 
-    static boolean containsId(String semicol, String id) {
-        int from = 0;
-        while (true) {
-            int i = semicol.indexOf(id, from);
-            if (i < 0) {
-                return false;
-            }
-            boolean leftOk = (i == 0) || semicol.charAt(i - 1) == ';';
-            int j = i + id.length();
-            boolean rightOk = (j == semicol.length()) || semicol.charAt(j) == ';';
-            if (leftOk && rightOk) {
-                return true;
-            }
-            from = i + 1;
-        }
+    static String revKey(String file, String gnd) {
+        return file + REV_SEP + gnd;
     }
 
     static String dedupJoin(List<String> in) {
@@ -373,14 +772,7 @@ public class CommonsLicensesMVOnly {
     }
 
     static InputStream openMaybeCompressed(String path) throws IOException {
-        InputStream in = Files.newInputStream(Paths.get(path));
-        if (path.endsWith(".gz")) {
-            return new GZIPInputStream(in, 1 << 20);
-        }
-        if (path.endsWith(".bz2")) {
-            return new BZip2CompressorInputStream(in, true);
-        }
-        return in;
+        return DumpStreams.open(Paths.get(path));
     }
 
     static void die(String m) {
@@ -0,0 +1,154 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A Bloom filter over 64-bit hashes, e.g. to reject keys which are certainly
+ * not in a store before they are looked up. The caller computes the hashes,
+ * the filter derives its bit positions from them by double hashing.
+ * <p>
+ * The filter can be saved next to the store it belongs to. An ID written
+ * with it tells whether it still matches the store.
+ *
+ * @author Michael Büchner
+ */
+public class BloomFilter {
+
+    private final static int MAGIC = 0x424c4d31; // BLM1
+
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedKeys the expected number of keys
+     * @param falsePositiveRate the wanted rate of false positives (e.g. 0.01)
+     */
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        final long n = Math.max(1, expectedKeys);
+        final long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        this.bits = new long[(int) ((m + 63) >>> 6)];
+        this.numBits = (long) bits.length << 6;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    private BloomFilter(long[] bits, int numHashes) {
+        this.bits = bits;
+        this.numBits = (long) bits.length << 6;
+        this.numHashes = numHashes;
+    }
+
+    /**
+     * Adds a key. Not thread-safe.
+     *
+     * @param hash the 64-bit hash of the key
+     */
+    public void put(long hash) {
+        final long h1 = hash;
+        final long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < numHashes; ++i) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Checks a key. Thread-safe as long as nothing is added.
+     *
+     * @param hash the 64-bit hash of the key
+     * @return <code>false</code> if the key was certainly not added
+     */
+    public boolean mightContain(long hash) {
+        final long h1 = hash;
+        final long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < numHashes; ++i) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the size of the filter in bytes
+     */
+    public long getSize() {
+        return numBits >>> 3;
+    }
+
+    /**
+     * Saves the filter (atomically replacing an older file).
+     *
+     * @param path the file
+     * @param id the ID of the data the filter was built from
+     * @throws IOException
+     */
+    public void save(Path path, String id) throws IOException {
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(id);
+            out.writeInt(numHashes);
+            out.writeInt(bits.length);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a filter.
+     *
+     * @param path the file
+     * @param id the ID of the data the filter must belong to
+     * @return the filter or <code>null</code> if there's no file or it
+     * belongs to other data
+     * @throws IOException
+     */
+    public static BloomFilter load(Path path, String id) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(id)) {
+                return null;
+            }
+            final int numHashes = in.readInt();
+            final long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; ++i) {
+                bits[i] = in.readLong();
+            }
+            return new BloomFilter(bits, numHashes);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+
+/**
+ * An entity type in the local Entity Facts database together with the time
+ * it has to be revalidated.
+ *
+ * @author Michael Büchner
+ */
+public class CachedEntityType {
+
+    private final EntityType entityType;
+    private final long expires;
+
+    /**
+     * Constructor.
+     *
+     * @param entityType the entity type
+     * @param expires expiry time in milliseconds since the epoch
+     */
+    public CachedEntityType(EntityType entityType, long expires) {
+        this.entityType = entityType;
+        this.expires = expires;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public long getExpires() {
+        return expires;
+    }
+
+    public boolean isExpired(long now) {
+        return expires <= now;
+    }
+}
@@ -0,0 +1,66 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.nio.ByteBuffer;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+
+/**
+ * Stores a {@link CachedEntityType} in an MVStore map as one byte (the ordinal
+ * of the entity type) followed by the expiry time in seconds as variable
+ * length long.
+ *
+ * @author Michael Büchner
+ */
+public class CachedEntityTypeDataType extends BasicDataType<CachedEntityType> {
+
+    public final static CachedEntityTypeDataType INSTANCE = new CachedEntityTypeDataType();
+
+    private final static EntityType[] TYPES = EntityType.values();
+
+    private CachedEntityTypeDataType() {
+    }
+
+    @Override
+    public int getMemory(CachedEntityType obj) {
+        return 24;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, CachedEntityType obj) {
+        buff.put((byte) obj.getEntityType().ordinal());
+        buff.putVarLong(obj.getExpires() / 1000);
+    }
+
+    @Override
+    public CachedEntityType read(ByteBuffer buff) {
+        final int ordinal = buff.get();
+        final long expires = DataUtils.readVarLong(buff) * 1000;
+        return new CachedEntityType(ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : EntityType.NA, expires);
+    }
+
+    @Override
+    public CachedEntityType[] createStorage(int size) {
+        return new CachedEntityType[size];
+    }
+}
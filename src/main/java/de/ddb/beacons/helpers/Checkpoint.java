@@ -0,0 +1,115 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * How far the dump pass of a full run got: the date of the dump and the
+ * offset in the decompressed dump up to which all items are in the
+ * {@link GndStateStore}. Stored in the data directory.
+ *
+ * @author Michael Büchner
+ */
+public class Checkpoint {
+
+    private final static Logger LOG = LoggerFactory.getLogger(Checkpoint.class);
+    private final static String FILENAME = "checkpoint.properties";
+    private final static String KEY_DUMP_DATE = "dumpDate";
+    private final static String KEY_OFFSET = "offset";
+
+    private final String dumpDate;
+    private final long offset;
+
+    public Checkpoint(String dumpDate, long offset) {
+        this.dumpDate = dumpDate;
+        this.offset = offset;
+    }
+
+    public String getDumpDate() {
+        return dumpDate;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Writes the checkpoint. The file is replaced atomically, so a crash
+     * leaves the previous checkpoint.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        final Properties prop = new Properties();
+        prop.setProperty(KEY_DUMP_DATE, dumpDate);
+        prop.setProperty(KEY_OFFSET, Long.toString(offset));
+
+        final Path file = getPath();
+        final Path tmp = file.resolveSibling(FILENAME + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            prop.store(out, "wkd2beacons checkpoint");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Checkpoint at {} MiB of dump {}.", offset >> 20, dumpDate);
+    }
+
+    /**
+     * @return the last checkpoint or <code>null</code> if there is none
+     */
+    public static Checkpoint load() {
+        final Path file = getPath();
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        final Properties prop = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            prop.load(in);
+            return new Checkpoint(prop.getProperty(KEY_DUMP_DATE), Long.parseLong(prop.getProperty(KEY_OFFSET)));
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Could not read checkpoint {}. {}", file, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes the checkpoint, e.g. after a complete run.
+     */
+    public static void delete() {
+        try {
+            Files.deleteIfExists(getPath());
+        } catch (IOException ex) {
+            LOG.warn("Could not delete checkpoint. {}", ex.getMessage());
+        }
+    }
+
+    private static Path getPath() {
+        return Paths.get(Configuration.get().getValue("dataDir"), FILENAME);
+    }
+}
@@ -0,0 +1,92 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compression of an output file.
+ *
+ * @author Michael Büchner
+ */
+public enum Compression {
+
+    NONE(""), GZIP(".gz"), ZSTD(".zst");
+
+    private final static Logger LOG = LoggerFactory.getLogger(Compression.class);
+
+    private final String suffix;
+
+    private Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return the file name suffix (empty for uncompressed files)
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Detects the compression of a file by its suffix.
+     *
+     * @param path the file
+     * @return the compression ({@link #NONE} for unknown suffixes)
+     */
+    public static Compression fromPath(Path path) {
+        final String name = path.getFileName().toString();
+        for (Compression compression : values()) {
+            if (compression != NONE && name.endsWith(compression.suffix)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Reads the compression from the configuration. Allowed values are none,
+     * gz (or gzip) and zstd.
+     *
+     * @param key the configuration key
+     * @return the compression ({@link #NONE} if not set)
+     */
+    public static Compression fromConfiguration(String key) {
+        final String value = Configuration.get().getValue(key);
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "none":
+                return NONE;
+            case "gz":
+            case "gzip":
+                return GZIP;
+            case "zst":
+            case "zstd":
+                return ZSTD;
+            default:
+                LOG.warn("Unknown compression {} for {}. Writing uncompressed.", value, key);
+                return NONE;
+        }
+    }
+}
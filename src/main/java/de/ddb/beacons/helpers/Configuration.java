@@ -65,6 +65,19 @@ public class Configuration {
         return null;
     }
     
+    public int getIntValue(String key, int defaultValue) {
+        final String value = getValue(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            LOG.warn("{} is not a number ({}). Using {} instead.", key, value, defaultValue);
+        }
+        return defaultValue;
+    }
+    
     public void setValue(String key, String value) {
         LOG.info("{} is set to {}.", key, value);
         prop.setProperty(key, value);
@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the deletion log of Wikidata via the MediaWiki API. Deleted items are
+ * not part of the daily dumps, so they have to be taken from there.
+ *
+ * @author Michael Büchner
+ */
+public class DeletionLog {
+
+    private final static Logger LOG = LoggerFactory.getLogger(DeletionLog.class);
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+    private final static String USER_AGENT = "wkd2beacons (https://github.com/mbuechner/wkd2beacons)";
+
+    private final String url;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    public DeletionLog() {
+        this.url = Configuration.get().getValue("deletionLogUrl");
+        this.connectTimeout = Configuration.get().getIntValue("deletionLogConnectTimeout", 10000);
+        this.readTimeout = Configuration.get().getIntValue("deletionLogReadTimeout", 30000);
+    }
+
+    /**
+     * Returns the items which were deleted between two dump dates and are
+     * still deleted at the end of this period.
+     *
+     * @param from first day (yyyyMMdd), inclusive
+     * @param to last day (yyyyMMdd), exclusive
+     * @return the Wikidata IDs of the deleted items
+     * @throws IOException if the deletion log can't be read
+     */
+    public Set<String> getDeletedItems(String from, String to) throws IOException {
+        final Set<String> deleted = new LinkedHashSet<>();
+        final String query = url + "?action=query&list=logevents&letype=delete&lenamespace=0&ledir=newer"
+                + "&leprop=title%7Ctype&lelimit=500&format=json&formatversion=2"
+                + "&lestart=" + toTimestamp(from) + "&leend=" + toTimestamp(to);
+        String next = "";
+        int events = 0;
+        do {
+            final JsonNode root = fetch(query + next);
+            for (JsonNode event : root.path("query").path("logevents")) {
+                final String title = event.path("title").asText();
+                switch (event.path("action").asText()) {
+                    case "delete" -> deleted.add(title);
+                    case "restore" -> deleted.remove(title);
+                    default -> {
+                        // revision deletion etc., the item still exists
+                    }
+                }
+                ++events;
+            }
+            final JsonNode cont = root.path("continue");
+            next = "";
+            for (var it = cont.fields(); it.hasNext();) {
+                final var field = it.next();
+                next += "&" + field.getKey() + "=" + URLEncoder.encode(field.getValue().asText(), StandardCharsets.UTF_8);
+            }
+        } while (!next.isEmpty());
+        LOG.info("Read {} deletion log event(s) from {} to {}: {} item(s) deleted.", events, from, to, deleted.size());
+        return deleted;
+    }
+
+    private JsonNode fetch(String query) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) URI.create(query).toURL().openConnection();
+        try {
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            conn.setRequestProperty("User-Agent", USER_AGENT);
+            conn.connect();
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Deletion log returned HTTP " + conn.getResponseCode() + " for " + query);
+            }
+            try (Reader reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+                final JsonNode root = MAPPER.readTree(reader);
+                if (root.has("error")) {
+                    throw new IOException("Deletion log returned error " + root.path("error").path("info").asText());
+                }
+                return root;
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String toTimestamp(String date) {
+        return date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6, 8) + "T00:00:00Z";
+    }
+}
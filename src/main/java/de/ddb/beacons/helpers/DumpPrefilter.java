@@ -0,0 +1,188 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides on the raw bytes of a dump line whether it's worth deserializing.
+ * All runners only need items with a certain property (GND ID, P227), which is
+ * a tiny fraction of the dump. Several properties can be given, then a line
+ * is wanted if it mentions any of them. The check is a byte-level substring search
+ * (Boyer-Moore-Horspool), so the skipped lines never become Strings or
+ * entity documents.
+ *
+ * @author Michael Büchner
+ */
+public class DumpPrefilter {
+
+    public enum Mode {
+        /**
+         * Deserialize everything.
+         */
+        OFF,
+        /**
+         * Deserialize lines mentioning the property anywhere and all entities
+         * which aren't items (e.g. properties).
+         */
+        PERMISSIVE,
+        /**
+         * Deserialize only lines containing the property as claim key.
+         */
+        STRICT
+    }
+
+    private final static byte[] ITEM_PREFIX = "{\"type\":\"item\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final Mode mode;
+    private final byte[][] needles;
+    private final int[][] shifts;
+    private final LongAdder accepted;
+    private final LongAdder skipped;
+
+    /**
+     * Constructor.
+     *
+     * @param mode the mode
+     * @param propertyIds the properties every wanted item has at least one
+     * of, e.g. P227
+     */
+    public DumpPrefilter(Mode mode, String... propertyIds) {
+        this.mode = mode;
+        this.needles = new byte[propertyIds.length][];
+        this.shifts = new int[propertyIds.length][];
+        for (int n = 0; n < propertyIds.length; ++n) {
+            final byte[] needle = (mode == Mode.STRICT ? "\"" + propertyIds[n] + "\":" : "\"" + propertyIds[n] + "\"").getBytes(StandardCharsets.US_ASCII);
+            final int[] shift = new int[256];
+            Arrays.fill(shift, needle.length);
+            for (int i = 0; i < needle.length - 1; ++i) {
+                shift[needle[i] & 0xFF] = needle.length - 1 - i;
+            }
+            needles[n] = needle;
+            shifts[n] = shift;
+        }
+        this.accepted = new LongAdder();
+        this.skipped = new LongAdder();
+    }
+
+    /**
+     * Creates the prefilter configured by <code>dumpPrefilter</code>
+     * (off, permissive or strict).
+     *
+     * @param propertyIds the properties every wanted item has at least one
+     * of, e.g. P227
+     * @return the prefilter
+     */
+    public static DumpPrefilter fromConfiguration(String... propertyIds) {
+        final String value = Configuration.get().getValue("dumpPrefilter");
+        Mode mode = Mode.OFF;
+        if (value != null && !value.isBlank()) {
+            try {
+                mode = Mode.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown dumpPrefilter mode " + value, ex);
+            }
+        }
+        return new DumpPrefilter(mode, propertyIds);
+    }
+
+    /**
+     * Checks a line. Thread-safe.
+     *
+     * @param data buffer containing the line
+     * @param offset start of the line
+     * @param length length of the line
+     * @return <code>true</code> if the line needs to be deserialized
+     */
+    public boolean accept(byte[] data, int offset, int length) {
+        final boolean accept = switch (mode) {
+            case OFF ->
+                true;
+            case PERMISSIVE ->
+                !startsWith(data, offset, length, ITEM_PREFIX) || containsAny(data, offset, length);
+            case STRICT ->
+                containsAny(data, offset, length);
+        };
+        if (accept) {
+            accepted.increment();
+        } else {
+            skipped.increment();
+        }
+        return accept;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of lines which needed deserialization
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return number of lines which were skipped
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    private boolean containsAny(byte[] data, int offset, int length) {
+        for (int n = 0; n < needles.length; ++n) {
+            if (indexOf(needles[n], shifts[n], data, offset, length) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] needle, int[] shift, byte[] data, int offset, int length) {
+        final int last = needle.length - 1;
+        final int end = offset + length - needle.length;
+        int i = offset;
+        while (i <= end) {
+            int j = last;
+            while (j >= 0 && data[i + j] == needle[j]) {
+                --j;
+            }
+            if (j < 0) {
+                return i - offset;
+            }
+            i += shift[data[i + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+
+/**
+ * Opens (possibly compressed) dump files. bzip2 files are decompressed by
+ * several threads, gzip files are decompressed on a background thread. The
+ * number of threads is set by <code>decompressionThreads</code> in the
+ * configuration; with 1 the plain single-threaded streams are used.
+ *
+ * @author Michael Büchner
+ */
+public class DumpStreams {
+
+    private final static int BUFFER_SIZE = 1 << 20;
+
+    private DumpStreams() {
+    }
+
+    /**
+     * Opens a file and decompresses it according to its file extension
+     * (<code>.bz2</code>, <code>.gz</code>, <code>.zst</code> or none).
+     *
+     * @param path the file
+     * @return the decompressed content
+     * @throws IOException
+     */
+    public static InputStream open(Path path) throws IOException {
+        return open(path, Configuration.get().getIntValue("decompressionThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Opens a file and decompresses it according to its file extension
+     * (<code>.bz2</code>, <code>.gz</code>, <code>.zst</code> or none).
+     *
+     * @param path the file
+     * @param threads number of decompressing threads
+     * @return the decompressed content
+     * @throws IOException
+     */
+    public static InputStream open(Path path, int threads) throws IOException {
+        final InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        final String name = path.getFileName().toString();
+        if (name.endsWith(".bz2")) {
+            return threads > 1 ? new ParallelBZip2InputStream(in, threads) : new BZip2CompressorInputStream(in, true);
+        }
+        if (name.endsWith(".gz")) {
+            final InputStream gz = new GZIPInputStream(in, BUFFER_SIZE);
+            return threads > 1 ? new ReadAheadInputStream(gz, BUFFER_SIZE, 16) : gz;
+        }
+        if (name.endsWith(".zst")) {
+            final InputStream zst = new ZstdCompressorInputStream(in);
+            return threads > 1 ? new ReadAheadInputStream(zst, BUFFER_SIZE, 16) : zst;
+        }
+        return in;
+    }
+}
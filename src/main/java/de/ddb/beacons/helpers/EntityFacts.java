@@ -21,29 +21,46 @@ package de.ddb.beacons.helpers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.StringDataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Entity types of GND entities. The types are cached in an MVStore file in
+ * the data directory, so only unknown or expired GND IDs are looked up at
+ * Entity Facts. Known types expire after entityFactsTtlDays, missing types and
+ * failed lookups after entityFactsNegativeTtlDays.
  *
  * @author Michael Büchner
  */
@@ -51,14 +68,30 @@ public class EntityFacts {
 
     private final static String DB_FILENAME_PREFIX = "entities-";
     private final static String DB_FILENAME_SUFFIX = "{{date}}.db";
+    private final static String STORE_FILENAME = "entities.mv.db";
+    private final static String MAP_ENTITY_TYPES = "entityTypes";
+    private final static String MAP_CACHED_ENTITY_TYPES = "cachedEntityTypes";
+    private final static String MAP_MIGRATED = "migrated";
     private final static String EF_URL = "http://hub.culturegraph.org/entityfacts/";
     private static EntityFacts efh;
-    private Map<String, EntityType> entities;
+    private MVStore store;
+    private volatile MVMap<String, CachedEntityType> entities;
     private final static ObjectMapper MAPPER = new ObjectMapper();
-    private File loadedFile;
+    private final String efUrl;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long ttl;
+    private final long negativeTtl;
+    private final Semaphore connections;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<EntityType>> inFlight;
 
     private final static Logger LOG = LoggerFactory.getLogger(EntityFacts.class);
 
+    /**
+     * Entity types. The ordinal is stored in the cache, so new types must be
+     * appended.
+     */
     public enum EntityType {
 
         PERSON("Person"), PLACE("Geografika"), FAMILY("Familie"), ORGANISATION("Organisation"), EVENT("Veranstaltung"), NA("Nicht verfügbar");
@@ -72,66 +105,152 @@ public class EntityFacts {
         public String getEntityTypeDescription() {
             return entityType;
         }
+
+        /**
+         * @param type the @type of an Entity Facts record (e.g. "person")
+         * @return the entity type or {@link #NA}
+         */
+        public static EntityType fromEntityFactsType(String type) {
+            for (EntityType et : values()) {
+                if (et.toString().equalsIgnoreCase(type)) {
+                    return et;
+                }
+            }
+            return NA;
+        }
     }
 
     private EntityFacts() {
-        entities = new HashMap<>();
-        loadedFile = null;
+        store = null;
+        entities = null;
+        final String url = Configuration.get().getValue("entityFactsUrl");
+        efUrl = url == null || url.isBlank() ? EF_URL : url;
+        connectTimeout = Configuration.get().getIntValue("entityFactsConnectTimeout", 10000);
+        readTimeout = Configuration.get().getIntValue("entityFactsReadTimeout", 30000);
+        ttl = TimeUnit.DAYS.toMillis(Configuration.get().getIntValue("entityFactsTtlDays", 180));
+        negativeTtl = TimeUnit.DAYS.toMillis(Configuration.get().getIntValue("entityFactsNegativeTtlDays", 7));
+        connections = new Semaphore(Math.max(1, Configuration.get().getIntValue("entityFactsConnections", 16)));
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("entityfacts-", 0).factory());
+        inFlight = new ConcurrentHashMap<>();
     }
 
-    public void save() {
-        final String filename = DB_FILENAME_PREFIX + DB_FILENAME_SUFFIX.replace("{{date}}", new SimpleDateFormat("yyyyMMdd").format(new Date()));
-        final File file = new File(Configuration.get().getValue("dataDir") + File.separator + filename);
-
-        if (!file.exists()) {
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-                oos.writeObject(entities);
-            } catch (IOException ex) {
-                LOG.error(ex.getMessage());
-            }
-        } else {
-            LOG.warn("Could not save local Entity Facts databased to {}, because file already exists.", file.getAbsoluteFile());
+    /**
+     * Commits all new entity types and closes the cache. It is opened again on
+     * the next lookup.
+     */
+    public synchronized void save() {
+        if (store == null) {
+            return;
         }
-        LOG.info("Local Entity Facts databased saved to {}.", file.getAbsoluteFile());
+        LOG.info("Saving local Entity Facts database with {} entries to {}...", entities.sizeAsLong(), store.getFileStore().getFileName());
+        store.close();
+        store = null;
+        entities = null;
+    }
 
+    /**
+     * Commits all new entity types, e.g. at a checkpoint.
+     */
+    public synchronized void commit() {
+        if (store != null) {
+            store.commit();
+        }
     }
 
+    /**
+     * Opens the cache. This is optional, because the cache is opened lazily
+     * by the first lookup.
+     */
     public void load() {
+        getEntities();
+    }
+
+    private MVMap<String, CachedEntityType> getEntities() {
+        final MVMap<String, CachedEntityType> map = entities;
+        return map != null ? map : open();
+    }
+
+    private synchronized MVMap<String, CachedEntityType> open() {
+        if (entities != null) {
+            return entities;
+        }
 
         final File dir = new File(Configuration.get().getValue("dataDir"));
-        LOG.info("Loading entity type database from {}...", dir.getAbsolutePath());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            LOG.error("{} is not a directory.", dir.getAbsolutePath());
+        }
+        final File file = new File(dir, STORE_FILENAME);
+        LOG.info("Opening entity type database {}...", file.getAbsolutePath());
+
+        // new entries are written by the background auto commit of MVStore
+        store = new MVStore.Builder().fileName(file.getAbsolutePath()).open();
+        final MVMap<String, CachedEntityType> map = store.openMap(MAP_CACHED_ENTITY_TYPES, new MVMap.Builder<String, CachedEntityType>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(CachedEntityTypeDataType.INSTANCE));
+        migrate(map);
+        migrate(dir, map);
+        LOG.info("Entity type database has {} entries.", map.sizeAsLong());
+        entities = map;
+        return map;
+    }
 
-        if (!dir.isDirectory()) {
-            LOG.error("{} is not a directory.", Configuration.get().getValue("dataDir"));
+    /**
+     * Converts the entity types without expiry time of the previous version of
+     * this database. Their expiry times are spread over the TTL, so they are
+     * not revalidated all at once.
+     */
+    private void migrate(MVMap<String, CachedEntityType> map) {
+        if (!store.hasMap(MAP_ENTITY_TYPES)) {
             return;
         }
-        final File[] files = dir.listFiles(new MyFileFilter());
+        final MVMap<String, EntityType> legacyMap = store.openMap(MAP_ENTITY_TYPES, new MVMap.Builder<String, EntityType>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(EntityTypeDataType.INSTANCE));
+        LOG.info("Adding expiry times to {} entity types...", legacyMap.sizeAsLong());
+        for (Map.Entry<String, EntityType> entry : legacyMap.entrySet()) {
+            map.putIfAbsent(entry.getKey(), new CachedEntityType(entry.getValue(), spreadExpiry(entry.getValue())));
+        }
+        store.removeMap(legacyMap);
+        store.commit();
+    }
 
-        if (files.length > 1) {
-            LOG.warn("Found the following entity type databases: {}", Arrays.toString(files));
-            Arrays.sort(files);
-            LOG.info("I have chosen wisely ... {}", files[files.length - 1].getName());
-        } else if (files.length == 0) {
-            LOG.warn("Could NOT found an entity type database. That will take long time, because all data need to be catched from Entity Facts service!");
+    /**
+     * Imports the most recent Java-serialized snapshot of older versions
+     * (entities-yyyyMMdd.db) once.
+     */
+    private void migrate(File dir, MVMap<String, CachedEntityType> map) {
+        final File[] files = dir.listFiles(new MyFileFilter());
+        if (files == null || files.length == 0) {
             return;
         }
+        Arrays.sort(files);
+        final File legacyFile = files[files.length - 1];
 
-        this.loadedFile = files[files.length - 1];
-
-        LOG.info("Loading entity type database from {}...", this.loadedFile.getName());
+        final MVMap<String, String> migrated = store.openMap(MAP_MIGRATED);
+        if (migrated.containsKey(legacyFile.getName())) {
+            return;
+        }
 
-        try (final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(this.loadedFile))) {
-            Object obj = ois.readObject();
-            if (obj instanceof Map) {
-                final Map<String, EntityType> casted = (Map<String, EntityType>) obj;
-                entities = casted;
-                LOG.info("Entity type database has {} entries.", entities.size());
+        LOG.info("Migrating entity type database {}...", legacyFile.getName());
+        try (final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(legacyFile)))) {
+            final Object obj = ois.readObject();
+            if (obj instanceof Map<?, ?> snapshot) {
+                long count = 0;
+                for (Map.Entry<?, ?> entry : snapshot.entrySet()) {
+                    if (entry.getKey() instanceof String gndId && entry.getValue() instanceof EntityType et) {
+                        // entries from Entity Facts are newer than the snapshot
+                        map.putIfAbsent(gndId, new CachedEntityType(et, spreadExpiry(et)));
+                        ++count;
+                    }
+                }
+                LOG.info("Migrated {} entries from {}.", count, legacyFile.getName());
             } else {
                 LOG.warn("Loaded object is not of expected type Map<String, EntityType>.");
-                entities = new HashMap<>();
             }
+            migrated.put(legacyFile.getName(), new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date()));
+            store.commit();
         } catch (IOException | ClassNotFoundException ex) {
-            LOG.warn("Error loading entity type database. {}", ex.getMessage());
+            LOG.warn("Error migrating entity type database. {}", ex.getMessage());
         }
     }
 
@@ -143,52 +262,185 @@ public class EntityFacts {
     }
 
     public EntityType getEntityType(String gndId) {
+        return getEntityTypeAsync(gndId).join();
+    }
+
+    /**
+     * Gets the entity type without blocking. On a cache miss or an expired
+     * entry Entity Facts is asked by a bounded pool of (virtual) threads.
+     * Concurrent requests for the same GND ID share one HTTP request.
+     *
+     * @param gndId the GND ID
+     * @return the entity type (never completes exceptionally)
+     */
+    public CompletableFuture<EntityType> getEntityTypeAsync(String gndId) {
 
         LOG.debug("Getting entity type for {}...", gndId);
-        if (entities != null && entities.containsKey(gndId)) {
-            final EntityType et = entities.get(gndId);
-            LOG.debug("Entity type of {} is '{}'.", gndId, et.getEntityTypeDescription());
-            return et;
+        final CachedEntityType cached = getEntities().get(gndId);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            LOG.debug("Entity type of {} is '{}'.", gndId, cached.getEntityType().getEntityTypeDescription());
+            Metrics.get().counter(Metrics.CACHE_HITS).increment();
+            return CompletableFuture.completedFuture(cached.getEntityType());
         }
+        Metrics.get().counter(Metrics.CACHE_MISSES).increment();
 
-        LOG.info("Entity type of {} is not in local database. Start asking Entity Facts...", gndId);
-        final EntityType et = getEntityTypeFromEntityFacts(gndId);
+        if (cached == null) {
+            LOG.info("Entity type of {} is not in local database. Start asking Entity Facts...", gndId);
+        } else {
+            LOG.info("Entity type of {} is expired. Start asking Entity Facts...", gndId);
+        }
+        return lookup(gndId, cached);
+    }
 
-        LOG.info("Entity type of {} is '{}'.", gndId, et.getEntityTypeDescription());
-        return et;
+    /**
+     * Stores an entity type taken from a GND dump. A dump is complete, so all
+     * types (even {@link EntityType#NA}) get the normal TTL. Entries with the
+     * same type which are valid for more than half of the TTL are not written
+     * again, so importing a newer dump only updates what changed or is due.
+     *
+     * @param gndId the GND ID
+     * @param entityType the entity type
+     * @return <code>true</code> if the entry was written
+     */
+    public boolean importEntityType(String gndId, EntityType entityType) {
+        final long now = System.currentTimeMillis();
+        final CachedEntityType cached = getEntities().get(gndId);
+        if (cached != null && cached.getEntityType() == entityType && cached.getExpires() - now > ttl / 2) {
+            return false;
+        }
+        getEntities().put(gndId, new CachedEntityType(entityType, now + ttl));
+        return true;
     }
 
+    /**
+     * Revalidates the entries which expire first, e.g. between two dump runs.
+     * The requests are limited to entityFactsRefreshRate per second.
+     *
+     * @param count maximum number of entries to revalidate
+     */
+    public void refresh(int count) {
+        if (count <= 0) {
+            return;
+        }
+        final double rate = Math.max(0.1, Configuration.get().getIntValue("entityFactsRefreshRate", 10));
+
+        // max-heap of the entries with the earliest expiry times
+        final PriorityQueue<Map.Entry<String, Long>> oldest = new PriorityQueue<>(count + 1,
+                Comparator.comparing((Map.Entry<String, Long> e) -> e.getValue()).reversed());
+        for (Map.Entry<String, CachedEntityType> entry : getEntities().entrySet()) {
+            final long expires = entry.getValue().getExpires();
+            if (oldest.size() < count || expires < oldest.peek().getValue()) {
+                oldest.add(Map.entry(entry.getKey(), expires));
+                if (oldest.size() > count) {
+                    oldest.poll();
+                }
+            }
+        }
+
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(oldest);
+        entries.sort(Comparator.comparing(Map.Entry::getValue));
+        LOG.info("Revalidating {} entity types with {} request(s) per second...", entries.size(), rate);
+
+        final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        final List<CompletableFuture<EntityType>> futures = new ArrayList<>(entries.size());
+        long next = System.nanoTime();
+        for (Map.Entry<String, Long> entry : entries) {
+            final long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            next += interval;
+            futures.add(lookup(entry.getKey(), getEntities().get(entry.getKey())));
+            if (futures.size() % 1000 == 0) {
+                LOG.info("Revalidated {} of {} entity types.", futures.size(), entries.size());
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        LOG.info("Revalidated {} entity types.", futures.size());
+    }
+
+    private CompletableFuture<EntityType> lookup(String gndId, CachedEntityType cached) {
+
+        final CompletableFuture<EntityType> future = new CompletableFuture<>();
+        final CompletableFuture<EntityType> running = inFlight.putIfAbsent(gndId, future);
+        if (running != null) {
+            return running;
+        }
+
+        executor.execute(() -> {
+            connections.acquireUninterruptibly();
+            try {
+                final long start = System.nanoTime();
+                EntityType et = getEntityTypeFromEntityFacts(gndId);
+                Metrics.get().histogram("entityFacts.lookup").record(System.nanoTime() - start);
+                if (et != null) {
+                    getEntities().put(gndId, new CachedEntityType(et, System.currentTimeMillis() + (et == EntityType.NA ? negativeTtl : ttl)));
+                } else {
+                    Metrics.get().counter("entityFacts.failures").increment();
+                    // keep a known type during outages, but ask again soon
+                    et = cached != null ? cached.getEntityType() : EntityType.NA;
+                    getEntities().put(gndId, new CachedEntityType(et, System.currentTimeMillis() + negativeTtl));
+                }
+                LOG.info("Entity type of {} is '{}'.", gndId, et.getEntityTypeDescription());
+                future.complete(et);
+            } catch (RuntimeException ex) {
+                LOG.warn("Could not get entity type of {}. {}", gndId, ex.getMessage());
+                future.complete(cached != null ? cached.getEntityType() : EntityType.NA);
+            } finally {
+                connections.release();
+                inFlight.remove(gndId, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return the entity type, {@link EntityType#NA} if Entity Facts doesn't
+     * know the GND ID or <code>null</code> if the request failed
+     */
     private EntityType getEntityTypeFromEntityFacts(String gndId) {
+        HttpURLConnection conn = null;
         try {
-            URL url = new URL(EF_URL + gndId);
-            final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
+            final URL url = URI.create(efUrl + gndId).toURL();
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
             conn.connect();
 
             // test if request was successful (status 200)
-            if (conn.getResponseCode() != 200) {
-                entities.put(gndId, EntityType.NA);
+            final int status = conn.getResponseCode();
+            if (status == 429 || status >= 500) {
+                LOG.warn("Could not get entity type of {} from Entity Facts. HTTP status {}", gndId, status);
+                return null;
+            } else if (status != 200) {
                 return EntityType.NA;
             }
 
-            final Reader reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8);
-            final JsonNode root = MAPPER.readTree(reader);
-            final String typeValue = root.path("@type").textValue();
-
-            for (EntityType et : EntityType.values()) {
-                if (typeValue.equalsIgnoreCase(et.toString())) {
-                    entities.put(gndId, et);
-                    return et;
-                }
+            try (Reader reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+                final JsonNode root = MAPPER.readTree(reader);
+                return EntityType.fromEntityFactsType(root.path("@type").textValue());
             }
 
-            return EntityType.NA;
-
-        } catch (IOException ex) {
-            return EntityType.NA;
+        } catch (IOException | IllegalArgumentException ex) {
+            LOG.warn("Could not get entity type of {} from Entity Facts. {}", gndId, ex.getMessage());
+            return null;
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
         }
     }
 
+    private long spreadExpiry(EntityType entityType) {
+        final long entryTtl = entityType == EntityType.NA ? negativeTtl : ttl;
+        return System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(Math.max(1, entryTtl));
+    }
+
     private static class MyFileFilter implements FileFilter {
 
         @Override
@@ -19,12 +19,14 @@
  */
 package de.ddb.beacons.helpers;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
-import org.wikidata.wdtk.util.Timer;
 
 /**
  * Simple {@link EntityDocumentProcessor} for basic counting and time keeping.
@@ -33,7 +35,8 @@ import org.wikidata.wdtk.util.Timer;
  * seconds) is given, then a {@link EntityTimerProcessor.TimeoutException}
  * (unchecked) will be thrown soon after this many seconds have passed. This can
  * be used to abort processing in a relatively clean way by catching this
- * exception at a higher level.
+ * exception at a higher level. It may be called by several threads; the
+ * entities are also counted in {@link Metrics}.
  *
  * @author Markus Kroetzsch, Michael Büchner
  *
@@ -42,10 +45,10 @@ public class EntityTimerProcessor implements EntityDocumentProcessor {
 
     static final Logger LOG = LoggerFactory.getLogger(EntityTimerProcessor.class);
 
-    final Timer timer = Timer.getNamedTimer("EntityTimerProcessor");
     final int timeout;
-    int entityCount = 0;
-    int lastSeconds = 0;
+    final AtomicLong entityCount = new AtomicLong();
+    final AtomicLong startNanos = new AtomicLong();
+    final AtomicInteger lastSeconds = new AtomicInteger();
 
     /**
      * Constructor.
@@ -71,9 +74,15 @@ public class EntityTimerProcessor implements EntityDocumentProcessor {
      */
     public void stop() {
         LOG.info("Finished processing.");
-        this.timer.stop();
-        this.lastSeconds = (int) (timer.getTotalWallTime() / 1000000000);
-        printStatus();
+        lastSeconds.set(elapsedSeconds());
+        printStatus(lastSeconds.get());
+    }
+
+    /**
+     * @return the number of counted entities
+     */
+    public long getEntityCount() {
+        return entityCount.get();
     }
 
     /**
@@ -81,36 +90,36 @@ public class EntityTimerProcessor implements EntityDocumentProcessor {
      * as to print an intermediate report roughly every ten seconds.
      */
     private void countEntity() {
-        if (!this.timer.isRunning()) {
-            startTimer();
+        if (startNanos.get() == 0 && startNanos.compareAndSet(0, System.nanoTime())) {
+            LOG.info("Starting processing.");
         }
+        Metrics.get().countEntities(1);
 
-        this.entityCount++;
-        if (this.entityCount % 100 == 0) {
-            timer.stop();
-            int seconds = (int) (timer.getTotalWallTime() / 1000000000);
-            if (seconds >= this.lastSeconds + 10) {
-                this.lastSeconds = seconds;
-                printStatus();
+        if (entityCount.incrementAndGet() % 100 == 0) {
+            final int seconds = elapsedSeconds();
+            final int last = lastSeconds.get();
+            // only one thread reports each interval
+            if (seconds >= last + 10 && lastSeconds.compareAndSet(last, seconds)) {
+                printStatus(seconds);
                 if (this.timeout > 0 && seconds > this.timeout) {
                     LOG.info("Timeout. Aborting processing.");
                     throw new TimeoutException();
                 }
             }
-            timer.start();
         }
     }
 
+    private int elapsedSeconds() {
+        final long start = startNanos.get();
+        return start == 0 ? 0 : (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+    }
+
     /**
      * Prints the current status, time and entity count.
      */
-    private void printStatus() {
-        LOG.info("Processed {} entities in {} sec ({} per second)", this.entityCount, this.lastSeconds, this.entityCount / this.lastSeconds);
-    }
-
-    private void startTimer() {
-        LOG.info("Starting processing.");
-        this.timer.start();
+    private void printStatus(int seconds) {
+        final long count = entityCount.get();
+        LOG.info("Processed {} entities in {} sec ({} per second)", count, seconds, seconds > 0 ? Long.toString(count / seconds) : "n/a");
     }
 
     public static class TimeoutException extends RuntimeException {
@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.nio.ByteBuffer;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+
+/**
+ * Stores an {@link EntityType} as a single byte (its ordinal) in an MVStore
+ * map. New entity types must therefore only be appended to the enum.
+ *
+ * @author Michael Büchner
+ */
+public class EntityTypeDataType extends BasicDataType<EntityType> {
+
+    public final static EntityTypeDataType INSTANCE = new EntityTypeDataType();
+
+    private final static EntityType[] TYPES = EntityType.values();
+
+    private EntityTypeDataType() {
+    }
+
+    @Override
+    public int getMemory(EntityType obj) {
+        return 1;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, EntityType obj) {
+        buff.put((byte) obj.ordinal());
+    }
+
+    @Override
+    public EntityType read(ByteBuffer buff) {
+        final int ordinal = buff.get();
+        return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : EntityType.NA;
+    }
+
+    @Override
+    public EntityType[] createStorage(int size) {
+        return new EntityType[size];
+    }
+}
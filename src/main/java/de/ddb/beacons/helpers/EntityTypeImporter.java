@@ -0,0 +1,252 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills the local Entity Facts database from a locally downloaded GND dump,
+ * so a dump run doesn't need to ask Entity Facts. Supported are files with one
+ * JSON record per line (optionally gzip or bzip2 compressed):
+ * <ul>
+ * <li>the lobid-gnd JSON-LD dump (<code>gndIdentifier</code> and
+ * <code>type</code>, Elasticsearch bulk action lines are skipped),</li>
+ * <li>Entity Facts bulk files (<code>@id</code> and <code>@type</code>, also
+ * as JSON array with one record per line).</li>
+ * </ul>
+ * The records are parsed by several threads. Importing a newer dump (or a
+ * lobid-gnd update file) refreshes an existing database incrementally, see
+ * {@link EntityFacts#importEntityType(String, EntityType)}.
+ *
+ * @author Michael Büchner
+ */
+public class EntityTypeImporter {
+
+    private final static Logger LOG = LoggerFactory.getLogger(EntityTypeImporter.class);
+    private final static JsonFactory FACTORY = new JsonFactory();
+    private final static long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    private final int workers;
+    private final int chunkSize;
+    private final LongAdder records;
+    private final LongAdder written;
+
+    /**
+     * Constructor.
+     *
+     * @param workers number of threads parsing records
+     * @param chunkSize size of the chunks handed to the threads in bytes
+     */
+    public EntityTypeImporter(int workers, int chunkSize) {
+        this.workers = Math.max(1, workers);
+        this.chunkSize = Math.max(1 << 16, chunkSize);
+        this.records = new LongAdder();
+        this.written = new LongAdder();
+    }
+
+    /**
+     * Imports the entity types of a GND dump into {@link EntityFacts}.
+     *
+     * @param file the dump file
+     * @throws IOException
+     */
+    public void importFile(Path file) throws IOException {
+        LOG.info("Importing entity types from {} with {} worker(s)...", file, workers);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            final Thread t = new Thread(r, "import-worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // bounded, so the reader can't run away from the workers
+        final int maxChunks = workers * 2;
+        final Semaphore chunks = new Semaphore(maxChunks);
+        final AtomicReference<IOException> error = new AtomicReference<>();
+
+        final long start = System.nanoTime();
+        long lastProgress = start;
+        long bytesRead = 0;
+
+        try (InputStream in = DumpStreams.open(file)) {
+            final LineChunker chunker = new LineChunker(in, chunkSize);
+            LineChunker.Chunk chunk;
+            while ((chunk = chunker.next()) != null && error.get() == null) {
+                chunks.acquire();
+                final LineChunker.Chunk job = chunk;
+                pool.execute(() -> {
+                    try {
+                        job.forEachLine(this::parse);
+                    } catch (IOException ex) {
+                        error.compareAndSet(null, ex);
+                    } catch (RuntimeException ex) {
+                        // e.g. from the MVStore, the executor would drop it
+                        error.compareAndSet(null, new IOException("Could not import entity types from " + file + ".", ex));
+                    } finally {
+                        chunks.release();
+                    }
+                });
+
+                bytesRead = chunker.getBytesRead();
+                final long now = System.nanoTime();
+                if (now - lastProgress > PROGRESS_INTERVAL) {
+                    lastProgress = now;
+                    logThroughput("Read", bytesRead, now - start);
+                }
+            }
+            // wait for the last chunks
+            chunks.acquire(maxChunks);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of entity types was interrupted.", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (error.get() != null) {
+            throw error.get();
+        }
+        logThroughput("Imported", bytesRead, System.nanoTime() - start);
+        LOG.info("{} of {} entity types were new or changed.", written.sum(), records.sum());
+    }
+
+    private void logThroughput(String prefix, long bytes, long nanos) {
+        final double seconds = Math.max(1, nanos) / 1e9;
+        LOG.info("{} {} MiB and {} records in {} s ({} MiB/s, {} records/s).",
+                prefix, bytes >> 20, records.sum(), Math.round(seconds),
+                String.format("%.1f", (bytes >> 20) / seconds), Math.round(records.sum() / seconds));
+    }
+
+    private void parse(byte[] data, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        // strip whitespace and the comma separating array elements
+        while (start < end && data[start] <= ' ') {
+            ++start;
+        }
+        while (end > start && (data[end - 1] <= ' ' || data[end - 1] == ',')) {
+            --end;
+        }
+        if (end - start <= 1) {
+            return; // empty line, '[' or ']'
+        }
+
+        String gndId = null;
+        EntityType entityType = null;
+        try (JsonParser parser = FACTORY.createParser(data, start, end - start)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "index":
+                        // Elasticsearch bulk action line of lobid-gnd
+                        return;
+                    case "gndIdentifier":
+                        gndId = parser.getText();
+                        break;
+                    case "@id":
+                        if (gndId == null) {
+                            final String id = parser.getText();
+                            gndId = id.substring(id.lastIndexOf('/') + 1);
+                        }
+                        break;
+                    case "type":
+                        if (value == JsonToken.START_ARRAY) {
+                            entityType = fromLobidTypes(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case "@type":
+                        if (value == JsonToken.VALUE_STRING) {
+                            entityType = EntityType.fromEntityFactsType(parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (IOException ex) {
+            LOG.warn("Could not parse GND record: {}", ex.getMessage());
+            return;
+        }
+
+        if (gndId == null || gndId.isEmpty() || entityType == null) {
+            return;
+        }
+        records.increment();
+        if (EntityFacts.get().importEntityType(gndId, entityType)) {
+            written.increment();
+        }
+    }
+
+    /**
+     * Maps the types of a lobid-gnd record to the entity types of Entity
+     * Facts. Records of other types (e.g. works or subject headings) are
+     * {@link EntityType#NA}.
+     */
+    private static EntityType fromLobidTypes(JsonParser parser) throws IOException {
+        EntityType entityType = EntityType.NA;
+        boolean family = false;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            switch (parser.getText()) {
+                case "DifferentiatedPerson":
+                    entityType = EntityType.PERSON;
+                    break;
+                case "Family":
+                    family = true;
+                    break;
+                case "CorporateBody":
+                    entityType = EntityType.ORGANISATION;
+                    break;
+                case "PlaceOrGeographicName":
+                    entityType = EntityType.PLACE;
+                    break;
+                case "ConferenceOrEvent":
+                    entityType = EntityType.EVENT;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        // families are persons in the GND ontology, too
+        return family ? EntityType.FAMILY : entityType;
+    }
+}
@@ -0,0 +1,447 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts line based files (BEACON, CSV) by their key with bounded memory. The
+ * key is the text before the first separator, lines with the same key are
+ * sorted by the whole line. Sorted runs are spilled to a temporary folder and
+ * merged afterwards. Header lines (<code>#</code> at the beginning of the
+ * file) stay in front, exact duplicates are removed and keys with different
+ * lines can be reported as conflicts.
+ *
+ * @author Michael Büchner
+ */
+public class ExternalSorter {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ExternalSorter.class);
+
+    // rough heap usage of a String and its list entry
+    private final static int LINE_OVERHEAD = 64;
+
+    private final char separator;
+    private final long maxMemory;
+    private final Path tmpDir;
+    private final Comparator<String> comparator;
+
+    /**
+     * Constructor.
+     *
+     * @param separator the character ending the key of a line
+     * @param maxMemory the maximum size of a run in memory (in bytes)
+     * @param tmpDir the folder for the sorted runs
+     */
+    public ExternalSorter(char separator, long maxMemory, Path tmpDir) {
+        this.separator = separator;
+        this.maxMemory = maxMemory;
+        this.tmpDir = tmpDir;
+        this.comparator = this::compare;
+    }
+
+    /**
+     * Sorts the output files given by their paths (e.g.
+     * {@link OutputFile#getPath()}) in place. The files are sorted in parallel
+     * by sortThreads threads which share sortMemory MiB. Files ending with
+     * <code>.csv</code> are keyed by the text before the first
+     * <code>;</code>, all other files by the text before the first
+     * <code>|</code>. Conflicts are written to
+     * <code>dataDir/&lt;file&gt;.conflicts.txt</code>.
+     *
+     * @param files the files (may be compressed)
+     * @throws IOException if a file couldn't be sorted
+     */
+    public static void sortAll(List<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        final Path dataDir = Paths.get(Configuration.get().getValue("dataDir"));
+        final int threads = Math.min(files.size(), Math.max(1, Configuration.get().getIntValue("sortThreads", 2)));
+        final long memory = ((long) Configuration.get().getIntValue("sortMemory", 512) << 20) / threads;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Result>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(executor.submit(() -> {
+                    final String name = stripCompression(file);
+                    final ExternalSorter sorter = new ExternalSorter(name.endsWith(".csv") ? ';' : '|', memory, dataDir);
+                    return sorter.sortInPlace(file, dataDir.resolve(name + ".conflicts.txt"));
+                }));
+            }
+            for (Future<Result> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sorting was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ioe ? ioe : new IOException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sorts a file and replaces it with the sorted version. The sorted file is
+     * compressed like the original one.
+     *
+     * @param file the file
+     * @param conflicts file for the conflicts (only created if there are
+     * conflicts) or <code>null</code>
+     * @return the statistics
+     * @throws IOException
+     */
+    public Result sortInPlace(Path file, Path conflicts) throws IOException {
+        final Compression compression = Compression.fromPath(file);
+        final Path base = file.resolveSibling(stripCompression(file) + ".sorting");
+        final Path tmp = Paths.get(base.toString() + compression.getSuffix());
+        try {
+            final Result result = sort(file, base, compression, conflicts);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Sorts a file.
+     *
+     * @param in the file to sort (may be compressed)
+     * @param out the sorted file (the suffix of the compression is appended)
+     * @param compression the compression of the sorted file
+     * @param conflicts file for the conflicts (only created if there are
+     * conflicts) or <code>null</code>
+     * @return the statistics
+     * @throws IOException
+     */
+    public Result sort(Path in, Path out, Compression compression, Path conflicts) throws IOException {
+        final long start = System.currentTimeMillis();
+        final List<String> header = new ArrayList<>();
+        final List<Path> runs = new ArrayList<>();
+        try {
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(DumpStreams.open(in, 1), StandardCharsets.UTF_8), 1 << 16)) {
+                long memory = 0;
+                boolean inHeader = true;
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (inHeader && line.startsWith("#")) {
+                        header.add(line);
+                        continue;
+                    }
+                    inHeader = false;
+                    lines.add(line);
+                    memory += LINE_OVERHEAD + 2L * line.length();
+                    if (memory >= maxMemory) {
+                        runs.add(spill(lines));
+                        lines = new ArrayList<>();
+                        memory = 0;
+                    }
+                }
+            }
+
+            final LineSource source;
+            if (runs.isEmpty()) {
+                lines.sort(comparator);
+                source = new ListSource(lines);
+            } else {
+                if (!lines.isEmpty()) {
+                    runs.add(spill(lines));
+                }
+                lines = null;
+                source = new MergeSource(runs, comparator);
+            }
+
+            final Result result;
+            try (source; OutputFile output = OutputWriter.get().open(out, compression); ConflictReport report = new ConflictReport(conflicts)) {
+                for (String h : header) {
+                    output.writeLine(h);
+                }
+                result = write(source, output, report);
+            }
+            LOG.info("Sorted {} in {} ms using {} run(s): {} lines, {} duplicates removed, {} conflicting keys.",
+                    in.getFileName(), System.currentTimeMillis() - start, Math.max(1, runs.size()),
+                    result.getLines(), result.getDuplicates(), result.getConflicts());
+            return result;
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private Result write(LineSource source, OutputFile output, ConflictReport report) throws IOException {
+        long count = 0;
+        long duplicates = 0;
+        long conflicts = 0;
+        String previous = null;
+        String groupFirst = null;
+        boolean groupReported = false;
+        String line;
+        while ((line = source.next()) != null) {
+            if (line.equals(previous)) {
+                ++duplicates;
+                continue;
+            }
+            if (groupFirst != null && sameKey(groupFirst, line)) {
+                if (!groupReported) {
+                    ++conflicts;
+                    report.write(groupFirst);
+                    groupReported = true;
+                }
+                report.write(line);
+            } else {
+                groupFirst = line;
+                groupReported = false;
+            }
+            output.writeLine(line);
+            previous = line;
+            ++count;
+        }
+        return new Result(count, duplicates, conflicts);
+    }
+
+    private Path spill(List<String> lines) throws IOException {
+        lines.sort(comparator);
+        final Path run = Files.createTempFile(tmpDir, "sort-", ".run");
+        try (BufferedWriter bw = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.newLine();
+            }
+        }
+        return run;
+    }
+
+    private int keyLength(String line) {
+        final int i = line.indexOf(separator);
+        return i < 0 ? line.length() : i;
+    }
+
+    private boolean sameKey(String a, String b) {
+        final int length = keyLength(a);
+        return length == keyLength(b) && a.regionMatches(0, b, 0, length);
+    }
+
+    private int compare(String a, String b) {
+        final int la = keyLength(a);
+        final int lb = keyLength(b);
+        final int n = Math.min(la, lb);
+        for (int i = 0; i < n; ++i) {
+            final char ca = a.charAt(i);
+            final char cb = b.charAt(i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return la != lb ? la - lb : a.compareTo(b);
+    }
+
+    private static String stripCompression(Path file) {
+        final String name = file.getFileName().toString();
+        return name.substring(0, name.length() - Compression.fromPath(file).getSuffix().length());
+    }
+
+    /**
+     * Statistics of a sorted file.
+     */
+    public static class Result {
+
+        private final long lines;
+        private final long duplicates;
+        private final long conflicts;
+
+        Result(long lines, long duplicates, long conflicts) {
+            this.lines = lines;
+            this.duplicates = duplicates;
+            this.conflicts = conflicts;
+        }
+
+        /**
+         * @return the number of written lines (without header)
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return the number of removed duplicate lines
+         */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * @return the number of keys with different lines
+         */
+        public long getConflicts() {
+            return conflicts;
+        }
+    }
+
+    private interface LineSource extends Closeable {
+
+        String next() throws IOException;
+    }
+
+    private static class ListSource implements LineSource {
+
+        private final List<String> lines;
+        private int index;
+
+        ListSource(List<String> lines) {
+            this.lines = lines;
+            this.index = 0;
+        }
+
+        @Override
+        public String next() {
+            return index < lines.size() ? lines.get(index++) : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * k-way merge of the sorted runs.
+     */
+    private static class MergeSource implements LineSource {
+
+        private final List<BufferedReader> readers;
+        private final PriorityQueue<Head> heads;
+
+        MergeSource(List<Path> runs, Comparator<String> comparator) throws IOException {
+            this.readers = new ArrayList<>();
+            this.heads = new PriorityQueue<>(runs.size(), (a, b) -> comparator.compare(a.line, b.line));
+            try {
+                for (Path run : runs) {
+                    final BufferedReader br = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                    readers.add(br);
+                    final String line = br.readLine();
+                    if (line != null) {
+                        heads.add(new Head(line, br));
+                    }
+                }
+            } catch (IOException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public String next() throws IOException {
+            final Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            final String line = head.line;
+            head.line = head.reader.readLine();
+            if (head.line != null) {
+                heads.add(head);
+            }
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (BufferedReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException ex) {
+                    error = ex;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private static class Head {
+
+            private String line;
+            private final BufferedReader reader;
+
+            Head(String line, BufferedReader reader) {
+                this.line = line;
+                this.reader = reader;
+            }
+        }
+    }
+
+    /**
+     * Lazily created file of conflicting lines.
+     */
+    private static class ConflictReport implements Closeable {
+
+        private final Path path;
+        private BufferedWriter bw;
+
+        ConflictReport(Path path) {
+            this.path = path;
+            this.bw = null;
+        }
+
+        void write(String line) throws IOException {
+            if (path == null) {
+                return;
+            }
+            if (bw == null) {
+                bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+            bw.write(line);
+            bw.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (bw != null) {
+                bw.close();
+            } else if (path != null) {
+                // no conflicts (any more)
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
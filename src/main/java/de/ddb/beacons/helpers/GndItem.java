@@ -0,0 +1,263 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+
+/**
+ * Everything the runners need from an item, extracted in a single pass over
+ * its statement groups: the GND ID, the image, logo and crest file names, the
+ * site links and the first string values of any further properties the
+ * declared BEACON files need. The string values are taken directly from the data model,
+ * so they don't need to be unescaped.
+ * <p>
+ * The view can also be filled from a {@link GndItemState}, i.e. without the
+ * dump.
+ * <p>
+ * One instance is reused for all items, so processors must not keep a
+ * reference to it.
+ *
+ * @author Michael Büchner
+ */
+public class GndItem {
+
+    // GND value property
+    public final static String GND_PROP = "P227";
+    // Image property
+    public final static String IMAGE_PROP = "P18";
+    // Logo property
+    public final static String LOGO_PROP = "P154";
+    // Crest (Wappen) property
+    public final static String CREST_PROP = "P94";
+
+    private final Set<String> properties;
+    private String qid;
+    private String gnd;
+    private String image;
+    private String logo;
+    private String crest;
+    private Map<String, SiteLink> siteLinks;
+    private Map<String, String> siteLinkTitles;
+    private Map<String, String> propertyValues;
+    private EntityType entityType;
+
+    /**
+     * Constructor for a view without further properties.
+     */
+    public GndItem() {
+        this(Collections.emptySet());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param properties IDs of further properties to extract (e.g. P214)
+     */
+    public GndItem(Set<String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Fills this view with the data of an item.
+     *
+     * @param itemDocument the item
+     * @return <code>true</code> if the item has a GND ID
+     */
+    public boolean load(ItemDocument itemDocument) {
+        qid = itemDocument.getEntityId().getId();
+        gnd = null;
+        image = null;
+        logo = null;
+        crest = null;
+        siteLinks = itemDocument.getSiteLinks();
+        siteLinkTitles = null;
+        propertyValues = null;
+        entityType = null;
+
+        for (StatementGroup statementGroup : itemDocument.getStatementGroups()) {
+            final String property = statementGroup.getProperty().getId();
+            switch (property) {
+                case GND_PROP ->
+                    gnd = getStringValue(statementGroup);
+                case IMAGE_PROP ->
+                    image = getStringValue(statementGroup);
+                case LOGO_PROP ->
+                    logo = getStringValue(statementGroup);
+                case CREST_PROP ->
+                    crest = getStringValue(statementGroup);
+                default -> {
+                    if (properties.contains(property)) {
+                        final String value = getStringValue(statementGroup);
+                        if (value != null) {
+                            if (propertyValues == null) {
+                                propertyValues = new HashMap<>();
+                            }
+                            propertyValues.put(property, value);
+                        }
+                    }
+                }
+            }
+        }
+        return gnd != null;
+    }
+
+    /**
+     * Fills this view with the stored data of an item.
+     *
+     * @param qid the Wikidata ID
+     * @param state the stored data
+     */
+    public void load(String qid, GndItemState state) {
+        this.qid = qid;
+        gnd = state.getGnd();
+        image = state.getImage();
+        logo = state.getLogo();
+        crest = state.getCrest();
+        siteLinks = null;
+        siteLinkTitles = state.getSiteLinks();
+        propertyValues = state.getProperties();
+        entityType = state.getEntityType();
+    }
+
+    /**
+     * @return a copy of the data of this view for storing it
+     */
+    public GndItemState toState() {
+        final Map<String, String> titles = new HashMap<>();
+        if (siteLinkTitles != null) {
+            titles.putAll(siteLinkTitles);
+        } else if (siteLinks != null) {
+            for (Map.Entry<String, SiteLink> siteLink : siteLinks.entrySet()) {
+                titles.put(siteLink.getKey(), siteLink.getValue().getPageTitle());
+            }
+        }
+        final Map<String, String> values = propertyValues == null || propertyValues.isEmpty() ? null : new HashMap<>(propertyValues);
+        return new GndItemState(gnd, image, logo, crest, titles, values, entityType);
+    }
+
+    /**
+     * @return the Wikidata ID (e.g. Q42)
+     */
+    public String getQid() {
+        return qid;
+    }
+
+    /**
+     * @return the GND ID or <code>null</code>
+     */
+    public String getGnd() {
+        return gnd;
+    }
+
+    /**
+     * @return the file name of the image (P18) or <code>null</code>
+     */
+    public String getImage() {
+        return image;
+    }
+
+    /**
+     * @return the file name of the logo (P154) or <code>null</code>
+     */
+    public String getLogo() {
+        return logo;
+    }
+
+    /**
+     * @return the file name of the crest (P94) or <code>null</code>
+     */
+    public String getCrest() {
+        return crest;
+    }
+
+    /**
+     * Returns the value of a property. GND ID, image, logo and crest are
+     * always available, other properties only if they were requested in the
+     * constructor (or when the item was stored).
+     *
+     * @param property the property ID (e.g. P214)
+     * @return the first string value or <code>null</code>
+     */
+    public String getPropertyValue(String property) {
+        return switch (property) {
+            case GND_PROP ->
+                gnd;
+            case IMAGE_PROP ->
+                image;
+            case LOGO_PROP ->
+                logo;
+            case CREST_PROP ->
+                crest;
+            default ->
+                propertyValues == null ? null : propertyValues.get(property);
+        };
+    }
+
+    /**
+     * @return the entity type of the GND entity saved in the state store or
+     * <code>null</code> if it's not known (always for items from a dump); it
+     * may be outdated, use {@link EntityFacts} for the current type
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * @param site the site key (e.g. dewiki)
+     * @return the page title at the site or <code>null</code>
+     */
+    public String getSiteLinkTitle(String site) {
+        if (siteLinkTitles != null) {
+            return siteLinkTitles.get(site);
+        }
+        final SiteLink siteLink = siteLinks == null ? null : siteLinks.get(site);
+        return siteLink == null ? null : siteLink.getPageTitle();
+    }
+
+    /**
+     * Returns the first string value of a statement group, like the runners
+     * always did. Empty strings count as no value.
+     */
+    private static String getStringValue(StatementGroup statementGroup) {
+        for (Statement s : statementGroup.getStatements()) {
+            final Snak snak = s.getMainSnak();
+            if (snak instanceof ValueSnak valueSnak) {
+                final Value v = valueSnak.getValue();
+                if (v instanceof StringValue stringValue && !stringValue.getString().isEmpty()) {
+                    return stringValue.getString();
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+
+/**
+ * Extracts the {@link GndItem} of every item once and hands it to all
+ * registered {@link GndItemProcessor}s. Items without GND ID are dropped here,
+ * so the processors don't need to look at them at all. As {@link GndItemProcessor}
+ * it forwards items which don't come from a dump, e.g. from the
+ * {@link GndStateStore}.
+ *
+ * @author Michael Büchner
+ */
+public class GndItemBroker implements EntityDocumentProcessor, GndItemProcessor {
+
+    private final List<GndItemProcessor> gndItemProcessors;
+    private final List<LongAdder> itemCounters;
+    private final GndItem item;
+
+    public GndItemBroker() {
+        this.gndItemProcessors = new ArrayList<>();
+        this.itemCounters = new ArrayList<>();
+        this.item = new GndItem();
+    }
+
+    /**
+     * Registers a processor. Processors are called in the order of their
+     * registration and are profiled if profileProcessors is enabled.
+     *
+     * @param gndItemProcessor the processor
+     */
+    public void registerGndItemProcessor(GndItemProcessor gndItemProcessor) {
+        gndItemProcessors.add(ProcessorProfiler.wrap(gndItemProcessor));
+        itemCounters.add(Metrics.get().counter("runner." + gndItemProcessor.getName() + ".items"));
+    }
+
+    @Override
+    public void processItemDocument(ItemDocument itemDocument) {
+        if (!item.load(itemDocument)) {
+            return;
+        }
+        processGndItem(item);
+    }
+
+    @Override
+    public void processGndItem(GndItem gndItem) {
+        for (int i = 0; i < gndItemProcessors.size(); ++i) {
+            gndItemProcessors.get(i).processGndItem(gndItem);
+            itemCounters.get(i).increment();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+/**
+ * Processes items with a GND ID, see {@link GndItemBroker}.
+ *
+ * @author Michael Büchner
+ */
+public interface GndItemProcessor {
+
+    /**
+     * Processes an item with a GND ID. The item view is reused for the next
+     * item, so don't keep a reference to it.
+     *
+     * @param item the item
+     */
+    void processGndItem(GndItem item);
+
+    /**
+     * @return the name of the processor in metrics and profiles, unique per
+     * processor
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
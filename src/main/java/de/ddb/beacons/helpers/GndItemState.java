@@ -0,0 +1,100 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The data of a {@link GndItem} as stored in the {@link GndStateStore}, i.e.
+ * everything needed to write the BEACON files without the dump.
+ *
+ * @author Michael Büchner
+ */
+public class GndItemState {
+
+    private final String gnd;
+    private final String image;
+    private final String logo;
+    private final String crest;
+    private final Map<String, String> siteLinks;
+    private final Map<String, String> properties;
+    private final EntityType entityType;
+
+    /**
+     * Constructor.
+     *
+     * @param gnd the GND ID
+     * @param image the file name of the image or <code>null</code>
+     * @param logo the file name of the logo or <code>null</code>
+     * @param crest the file name of the crest or <code>null</code>
+     * @param siteLinks the page titles by site key (e.g. dewiki)
+     * @param properties the values of further properties by property ID (see
+     * {@link GndItem#getPropertyValue(String)})
+     * @param entityType the entity type of the GND entity or <code>null</code>
+     * if it's not known yet
+     */
+    public GndItemState(String gnd, String image, String logo, String crest, Map<String, String> siteLinks, Map<String, String> properties, EntityType entityType) {
+        this.gnd = gnd;
+        this.image = image;
+        this.logo = logo;
+        this.crest = crest;
+        this.siteLinks = siteLinks == null ? Collections.emptyMap() : siteLinks;
+        this.properties = properties == null ? Collections.emptyMap() : properties;
+        this.entityType = entityType;
+    }
+
+    /**
+     * @param type the entity type
+     * @return a copy with the given entity type
+     */
+    public GndItemState withEntityType(EntityType type) {
+        return new GndItemState(gnd, image, logo, crest, siteLinks, properties, type);
+    }
+
+    public String getGnd() {
+        return gnd;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public String getLogo() {
+        return logo;
+    }
+
+    public String getCrest() {
+        return crest;
+    }
+
+    public Map<String, String> getSiteLinks() {
+        return siteLinks;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+}
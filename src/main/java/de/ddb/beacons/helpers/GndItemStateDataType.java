@@ -0,0 +1,119 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+
+/**
+ * Stores a {@link GndItemState} in an MVStore map. Strings are written as
+ * length and data, missing values with length -1. The entity type is stored
+ * as its ordinal (-1 if unknown).
+ *
+ * @author Michael Büchner
+ */
+public class GndItemStateDataType extends BasicDataType<GndItemState> {
+
+    public final static GndItemStateDataType INSTANCE = new GndItemStateDataType();
+
+    private final static EntityType[] TYPES = EntityType.values();
+
+    private GndItemStateDataType() {
+    }
+
+    @Override
+    public int getMemory(GndItemState obj) {
+        int memory = 64 + getMemory(obj.getGnd()) + getMemory(obj.getImage()) + getMemory(obj.getLogo()) + getMemory(obj.getCrest());
+        for (Map.Entry<String, String> siteLink : obj.getSiteLinks().entrySet()) {
+            memory += 32 + getMemory(siteLink.getKey()) + getMemory(siteLink.getValue());
+        }
+        for (Map.Entry<String, String> property : obj.getProperties().entrySet()) {
+            memory += 32 + getMemory(property.getKey()) + getMemory(property.getValue());
+        }
+        return memory;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, GndItemState obj) {
+        writeString(buff, obj.getGnd());
+        writeString(buff, obj.getImage());
+        writeString(buff, obj.getLogo());
+        writeString(buff, obj.getCrest());
+        buff.putVarInt(obj.getSiteLinks().size());
+        for (Map.Entry<String, String> siteLink : obj.getSiteLinks().entrySet()) {
+            writeString(buff, siteLink.getKey());
+            writeString(buff, siteLink.getValue());
+        }
+        buff.putVarInt(obj.getProperties().size());
+        for (Map.Entry<String, String> property : obj.getProperties().entrySet()) {
+            writeString(buff, property.getKey());
+            writeString(buff, property.getValue());
+        }
+        buff.put((byte) (obj.getEntityType() == null ? -1 : obj.getEntityType().ordinal()));
+    }
+
+    @Override
+    public GndItemState read(ByteBuffer buff) {
+        final String gnd = readString(buff);
+        final String image = readString(buff);
+        final String logo = readString(buff);
+        final String crest = readString(buff);
+        final int size = DataUtils.readVarInt(buff);
+        final Map<String, String> siteLinks = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; ++i) {
+            siteLinks.put(readString(buff), readString(buff));
+        }
+        final int propertyCount = DataUtils.readVarInt(buff);
+        final Map<String, String> properties = propertyCount == 0 ? null : new HashMap<>(propertyCount * 4 / 3 + 1);
+        for (int i = 0; i < propertyCount; ++i) {
+            properties.put(readString(buff), readString(buff));
+        }
+        final int ordinal = buff.get();
+        final EntityType entityType = ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : null;
+        return new GndItemState(gnd, image, logo, crest, siteLinks, properties, entityType);
+    }
+
+    @Override
+    public GndItemState[] createStorage(int size) {
+        return new GndItemState[size];
+    }
+
+    private static int getMemory(String s) {
+        return s == null ? 0 : 40 + 2 * s.length();
+    }
+
+    private static void writeString(WriteBuffer buff, String s) {
+        if (s == null) {
+            buff.putVarInt(-1);
+            return;
+        }
+        buff.putVarInt(s.length()).putStringData(s, s.length());
+    }
+
+    private static String readString(ByteBuffer buff) {
+        final int length = DataUtils.readVarInt(buff);
+        return length < 0 ? null : DataUtils.readString(buff, length);
+    }
+}
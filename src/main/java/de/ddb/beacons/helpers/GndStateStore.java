@@ -0,0 +1,259 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.StringDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The GND concordance of the last run: the data of all items with GND ID,
+ * keyed by Wikidata ID, and an index by GND ID. It is filled by the dump
+ * pass of a full run and updated with the daily dumps. All BEACON and CSV
+ * files are written from it in a separate export phase.
+ * <p>
+ * Changes are committed in batches of stateCommitInterval changes.
+ *
+ * @author Michael Büchner
+ */
+public class GndStateStore implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(GndStateStore.class);
+    private final static String STORE_FILENAME = "gndstate.mv.db";
+    private final static String MAP_ITEMS = "items";
+    private final static String MAP_GNDS = "gnds";
+    private final static String MAP_META = "meta";
+    private final static String KEY_DUMP_DATE = "dumpDate";
+    private final static String KEY_FORMAT = "format";
+    private final static String KEY_PROPERTIES = "properties";
+    private final static String FORMAT = "3";
+    // separates GND ID and Wikidata ID in the keys of the index
+    private final static char SEPARATOR = '\t';
+
+    private final MVStore store;
+    private final MVMap<String, GndItemState> items;
+    private final MVMap<String, String> gnds;
+    private final MVMap<String, String> meta;
+    private final int commitInterval;
+    private int uncommitted;
+
+    /**
+     * Opens (or creates) the store in the data directory.
+     */
+    public GndStateStore() {
+        final File file = new File(Configuration.get().getValue("dataDir"), STORE_FILENAME);
+        LOG.info("Opening GND state store {}...", file.getAbsolutePath());
+        this.store = new MVStore.Builder().fileName(file.getAbsolutePath()).autoCommitDisabled().open();
+        this.items = store.openMap(MAP_ITEMS, new MVMap.Builder<String, GndItemState>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(GndItemStateDataType.INSTANCE));
+        this.gnds = store.openMap(MAP_GNDS, new MVMap.Builder<String, String>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE));
+        this.meta = store.openMap(MAP_META, new MVMap.Builder<String, String>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE));
+        this.commitInterval = Math.max(1, Configuration.get().getIntValue("stateCommitInterval", 100000));
+        this.uncommitted = 0;
+
+        if (!FORMAT.equals(meta.get(KEY_FORMAT))) {
+            // written by an older version, a full run is needed
+            reset();
+        }
+    }
+
+    /**
+     * Stores the data of an item.
+     *
+     * @param qid the Wikidata ID
+     * @param state the data
+     */
+    public void put(String qid, GndItemState state) {
+        final GndItemState old = items.put(qid, state);
+        if (old != null && !old.getGnd().equals(state.getGnd())) {
+            gnds.remove(old.getGnd() + SEPARATOR + qid);
+        }
+        gnds.put(state.getGnd() + SEPARATOR + qid, "");
+        changed();
+    }
+
+    /**
+     * Sets the entity type of an item, if it still has the same GND ID.
+     *
+     * @param qid the Wikidata ID
+     * @param gnd the GND ID
+     * @param entityType the entity type of the GND ID
+     */
+    public void setEntityType(String qid, String gnd, EntityType entityType) {
+        items.computeIfPresent(qid, (key, state) -> gnd.equals(state.getGnd()) ? state.withEntityType(entityType) : state);
+    }
+
+    /**
+     * Removes an item, e.g. because it was deleted or lost its GND ID.
+     *
+     * @param qid the Wikidata ID
+     * @return <code>true</code> if the item was stored
+     */
+    public boolean remove(String qid) {
+        final GndItemState old = items.remove(qid);
+        if (old == null) {
+            return false;
+        }
+        gnds.remove(old.getGnd() + SEPARATOR + qid);
+        changed();
+        return true;
+    }
+
+    /**
+     * @param gnd the GND ID
+     * @return the Wikidata IDs of all items with this GND ID
+     */
+    public List<String> findQids(String gnd) {
+        final List<String> qids = new ArrayList<>(1);
+        final String prefix = gnd + SEPARATOR;
+        final Cursor<String, String> cursor = gnds.cursor(prefix);
+        while (cursor.hasNext()) {
+            final String key = cursor.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            qids.add(key.substring(prefix.length()));
+        }
+        return qids;
+    }
+
+    /**
+     * Removes all items and the dump date, e.g. before a full run.
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * @return the date (yyyyMMdd) of the last dump applied completely or
+     * <code>null</code> if there was no complete run yet
+     */
+    public String getDumpDate() {
+        return meta.get(KEY_DUMP_DATE);
+    }
+
+    /**
+     * Marks a dump as applied completely and commits all changes.
+     *
+     * @param dumpDate the date of the dump (yyyyMMdd)
+     */
+    public void setDumpDate(String dumpDate) {
+        meta.put(KEY_DUMP_DATE, dumpDate);
+        commit();
+    }
+
+    /**
+     * @return the IDs of the further properties stored with the items (see
+     * {@link GndItem#getPropertyValue(String)})
+     */
+    public Set<String> getProperties() {
+        final String value = meta.get(KEY_PROPERTIES);
+        if (value == null || value.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new TreeSet<>(Arrays.asList(value.split(",")));
+    }
+
+    /**
+     * Sets the further properties to store with the items. Only call it on an
+     * empty store, otherwise the stored items lack the values.
+     *
+     * @param properties the property IDs
+     */
+    public void setProperties(Set<String> properties) {
+        meta.put(KEY_PROPERTIES, String.join(",", new TreeSet<>(properties)));
+        commit();
+    }
+
+    /**
+     * @return the number of stored items
+     */
+    public long size() {
+        return items.sizeAsLong();
+    }
+
+    /**
+     * Hands all stored items to a processor, ordered by GND ID (and Wikidata
+     * ID).
+     *
+     * @param processor the processor
+     * @return the number of exported items
+     */
+    public long export(GndItemProcessor processor) {
+        LOG.info("Exporting {} items from GND state store...", items.sizeAsLong());
+        final long start = System.currentTimeMillis();
+        final GndItem item = new GndItem();
+        final Cursor<String, String> cursor = gnds.cursor(null);
+        long count = 0;
+        while (cursor.hasNext()) {
+            final String key = cursor.next();
+            final String qid = key.substring(key.indexOf(SEPARATOR) + 1);
+            final GndItemState state = items.get(qid);
+            if (state != null) {
+                item.load(qid, state);
+                processor.processGndItem(item);
+                ++count;
+            }
+        }
+        LOG.info("Exported GND state store in {} s.", (System.currentTimeMillis() - start) / 1000);
+        return count;
+    }
+
+    public void commit() {
+        store.commit();
+        uncommitted = 0;
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void reset() {
+        items.clear();
+        gnds.clear();
+        meta.clear();
+        meta.put(KEY_FORMAT, FORMAT);
+        store.commit();
+        uncommitted = 0;
+    }
+
+    private void changed() {
+        if (++uncommitted >= commitInterval) {
+            commit();
+        }
+    }
+}
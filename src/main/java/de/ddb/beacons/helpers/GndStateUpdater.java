@@ -0,0 +1,121 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import de.ddb.beacons.helpers.EntityFacts.EntityType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.EntityRedirectDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+
+/**
+ * Writes the items of a dump to the {@link GndStateStore}. Items without GND
+ * ID (e.g. after the P227 claim was removed) and redirected (merged) items are
+ * removed from the store, so daily dumps can be applied as deltas. Besides
+ * the fixed fields, the values of the properties registered in the store are
+ * extracted in the same pass.
+ * <p>
+ * The entity types of the GND IDs are requested from {@link EntityFacts}
+ * while the dump is processed and stored when they arrive. Call
+ * {@link #finish()} after the dump to wait for the last ones.
+ *
+ * @author Michael Büchner
+ */
+public class GndStateUpdater implements EntityDocumentProcessor {
+
+    private final static Logger LOG = LoggerFactory.getLogger(GndStateUpdater.class);
+    // maximum number of entity types being requested at once
+    private final static int MAX_PENDING = 10000;
+
+    private final GndStateStore store;
+    private final GndItem item;
+    private final Semaphore pending;
+    private long updated;
+    private long removed;
+
+    public GndStateUpdater(GndStateStore store) {
+        this.store = store;
+        this.item = new GndItem(store.getProperties());
+        this.pending = new Semaphore(MAX_PENDING);
+        this.updated = 0;
+        this.removed = 0;
+    }
+
+    @Override
+    public void processItemDocument(ItemDocument itemDocument) {
+        if (item.load(itemDocument)) {
+            final String qid = item.getQid();
+            final String gnd = item.getGnd();
+            final CompletableFuture<EntityType> entityType = EntityFacts.get().getEntityTypeAsync(gnd);
+            if (entityType.isDone()) {
+                store.put(qid, item.toState().withEntityType(entityType.join()));
+            } else {
+                store.put(qid, item.toState());
+                pending.acquireUninterruptibly();
+                entityType.whenComplete((et, ex) -> {
+                    if (et != null) {
+                        store.setEntityType(qid, gnd, et);
+                    }
+                    pending.release();
+                });
+            }
+            ++updated;
+        } else if (store.remove(item.getQid())) {
+            ++removed;
+        }
+    }
+
+    @Override
+    public void processEntityRedirectDocument(EntityRedirectDocument entityRedirectDocument) {
+        if (store.remove(entityRedirectDocument.getEntityId().getId())) {
+            ++removed;
+        }
+    }
+
+    /**
+     * @return the number of items with a GND ID put into the store
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Waits until the entity types requested so far are stored. Must be called
+     * by the thread which processes the items, e.g. before a checkpoint.
+     */
+    public void awaitEntityTypes() {
+        pending.acquireUninterruptibly(MAX_PENDING);
+        pending.release(MAX_PENDING);
+    }
+
+    /**
+     * Waits for the requested entity types and commits the store.
+     */
+    public void finish() {
+        awaitEntityTypes();
+        store.commit();
+        Metrics.get().counter("state.updated").add(updated);
+        Metrics.get().counter("state.removed").add(removed);
+        LOG.info("Updated {} and removed {} items in GND state store, which has {} items now.", updated, removed, store.size());
+    }
+}
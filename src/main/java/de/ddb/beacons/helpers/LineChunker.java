@@ -0,0 +1,195 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Cuts a byte stream of newline separated records (e.g. the Wikidata JSON dump
+ * or NDJSON) into chunks which always end at a line break. Chunks can be
+ * handed to other threads, because each one owns its byte array.
+ *
+ * @author Michael Büchner
+ */
+public class LineChunker {
+
+    private final InputStream in;
+    private final int chunkSize;
+    private final long startOffset;
+    private byte[] carry;
+    private int carryLength;
+    private long bytesRead;
+    private boolean eof;
+
+    /**
+     * Constructor.
+     *
+     * @param in the stream to read from (not closed by this class)
+     * @param chunkSize the minimum size of a chunk in bytes
+     */
+    public LineChunker(InputStream in, int chunkSize) {
+        this(in, chunkSize, 0);
+    }
+
+    /**
+     * Constructor for a stream which doesn't start at the beginning of the
+     * data, e.g. after skipping to a checkpoint.
+     *
+     * @param in the stream to read from (not closed by this class)
+     * @param chunkSize the minimum size of a chunk in bytes
+     * @param startOffset offset of the stream's first byte in the data
+     */
+    public LineChunker(InputStream in, int chunkSize, long startOffset) {
+        this.in = in;
+        this.chunkSize = chunkSize;
+        this.startOffset = startOffset;
+        this.carry = new byte[0];
+        this.carryLength = 0;
+        this.bytesRead = 0;
+        this.eof = false;
+    }
+
+    /**
+     * Reads the next chunk. If a single line is longer than the chunk size, the
+     * chunk grows until it contains the whole line.
+     *
+     * @return the next chunk or <code>null</code> at the end of the stream
+     * @throws IOException
+     */
+    public Chunk next() throws IOException {
+        if (eof && carryLength == 0) {
+            return null;
+        }
+
+        byte[] buf = new byte[Math.max(chunkSize, carryLength)];
+        System.arraycopy(carry, 0, buf, 0, carryLength);
+        int len = carryLength;
+        carryLength = 0;
+
+        while (true) {
+            while (!eof && len < buf.length) {
+                final int n = in.read(buf, len, buf.length - len);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    len += n;
+                    bytesRead += n;
+                }
+            }
+
+            if (eof) {
+                return len == 0 ? null : new Chunk(buf, len, startOffset + bytesRead);
+            }
+
+            int nl = len - 1;
+            while (nl >= 0 && buf[nl] != '\n') {
+                --nl;
+            }
+
+            if (nl >= 0) {
+                carryLength = len - nl - 1;
+                if (carry.length < carryLength) {
+                    carry = new byte[Math.max(carryLength, chunkSize / 4)];
+                }
+                System.arraycopy(buf, nl + 1, carry, 0, carryLength);
+                return new Chunk(buf, nl + 1, startOffset + bytesRead - carryLength);
+            }
+
+            // one line is longer than the whole chunk
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+    }
+
+    /**
+     * @return the number of bytes read from the underlying stream so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * A sequence of complete lines.
+     */
+    public static class Chunk {
+
+        private final byte[] data;
+        private final int length;
+        private final long endOffset;
+
+        Chunk(byte[] data, int length, long endOffset) {
+            this.data = data;
+            this.length = length;
+            this.endOffset = endOffset;
+        }
+
+        /**
+         * @return the data (only the first {@link #getLength()} bytes are
+         * valid)
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @return the number of valid bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return the offset of the first byte after this chunk in the data,
+         * always at the beginning of a line
+         */
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * Calls the handler for every line of this chunk. The line break
+         * itself is not passed to the handler.
+         *
+         * @param handler the handler
+         * @throws IOException
+         */
+        public void forEachLine(LineHandler handler) throws IOException {
+            int start = 0;
+            for (int i = 0; i < length; ++i) {
+                if (data[i] == '\n') {
+                    handler.line(data, start, i - start);
+                    start = i + 1;
+                }
+            }
+            if (start < length) {
+                handler.line(data, start, length - start);
+            }
+        }
+    }
+
+    /**
+     * Receives single lines of a {@link Chunk}.
+     */
+    public interface LineHandler {
+
+        void line(byte[] data, int offset, int length) throws IOException;
+    }
+}
@@ -0,0 +1,315 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.StringDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a String map of an {@link MVStore} from pairs in random key order
+ * without page churn. The pairs are collected in bounded memory, sorted runs
+ * are spilled to a temporary folder and merged into a fresh map, which is
+ * filled with {@link MVMap#append(Object, Object)} in key order. Finally the
+ * fresh map replaces the old one in a single commit.
+ * <p>
+ * If a key is added more than once, the last value wins, like with
+ * {@link MVMap#put(Object, Object)}. The entries of the old map can be kept
+ * as the oldest values.
+ *
+ * @author Michael Büchner
+ */
+public class MVStoreBulkLoader implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(MVStoreBulkLoader.class);
+
+    // rough heap usage of two Strings and their list entry
+    private final static int PAIR_OVERHEAD = 96;
+
+    private final MVStore store;
+    private final String mapName;
+    private final long maxMemory;
+    private final Path tmpDir;
+    private final boolean keepExisting;
+    private final List<String[]> buffer;
+    private final List<Path> runs;
+    private long bufferMemory;
+    private long added;
+
+    /**
+     * Constructor.
+     *
+     * @param store the store
+     * @param mapName the name of the map to build
+     * @param maxMemory the maximum size of a run in memory (in bytes)
+     * @param tmpDir the folder for the sorted runs
+     * @param keepExisting <code>true</code> to keep the entries of the old map
+     * which aren't added again, <code>false</code> to replace it completely
+     */
+    public MVStoreBulkLoader(MVStore store, String mapName, long maxMemory, Path tmpDir, boolean keepExisting) {
+        this.store = store;
+        this.mapName = mapName;
+        this.maxMemory = maxMemory;
+        this.tmpDir = tmpDir;
+        this.keepExisting = keepExisting;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.bufferMemory = 0;
+        this.added = 0;
+    }
+
+    /**
+     * Adds a pair. Not thread-safe.
+     *
+     * @param key the key
+     * @param value the value
+     * @throws IOException if a run can't be written
+     */
+    public void add(String key, String value) throws IOException {
+        buffer.add(new String[]{key, value});
+        bufferMemory += PAIR_OVERHEAD + 2L * (key.length() + value.length());
+        ++added;
+        if (bufferMemory >= maxMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of pairs added so far
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * Merges all pairs into a fresh map and replaces the old map with it.
+     *
+     * @return the number of entries of the new map
+     * @throws IOException if a run can't be read
+     */
+    public long finish() throws IOException {
+        final long start = System.currentTimeMillis();
+        final String bulkName = mapName + ".bulk";
+        if (store.hasMap(bulkName)) {
+            // left over from an interrupted bulk load
+            store.removeMap(bulkName);
+        }
+        final MVMap<String, String> bulk = store.openMap(bulkName, new MVMap.Builder<String, String>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE)
+                .singleWriter());
+
+        // in-memory pairs are the newest run, the old map is the oldest source
+        buffer.sort((a, b) -> a[0].compareTo(b[0]));
+        final List<Iterator<String[]>> sources = new ArrayList<>(runs.size() + 2);
+        if (keepExisting && store.hasMap(mapName)) {
+            final Iterator<Map.Entry<String, String>> existing = openMap(mapName).entrySet().iterator();
+            sources.add(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return existing.hasNext();
+                }
+
+                @Override
+                public String[] next() {
+                    final Map.Entry<String, String> e = existing.next();
+                    return new String[]{e.getKey(), e.getValue()};
+                }
+            });
+        }
+        final List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (Path run : runs) {
+                final RunReader reader = new RunReader(run);
+                readers.add(reader);
+                sources.add(reader);
+            }
+            sources.add(buffer.iterator());
+
+            final PriorityQueue<Head> heads = new PriorityQueue<>(sources.size(),
+                    (a, b) -> a.pair[0].equals(b.pair[0]) ? Integer.compare(a.source, b.source) : a.pair[0].compareTo(b.pair[0]));
+            for (int i = 0; i < sources.size(); ++i) {
+                if (sources.get(i).hasNext()) {
+                    heads.add(new Head(sources.get(i).next(), i));
+                }
+            }
+
+            String[] pending = null;
+            while (!heads.isEmpty()) {
+                final Head head = heads.poll();
+                if (pending != null && !pending[0].equals(head.pair[0])) {
+                    bulk.append(pending[0], pending[1]);
+                }
+                // equal keys come ordered by source, so the newest one is kept
+                pending = head.pair;
+                final Iterator<String[]> source = sources.get(head.source);
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), head.source));
+                }
+            }
+            if (pending != null) {
+                bulk.append(pending[0], pending[1]);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            deleteRuns();
+        }
+
+        if (store.hasMap(mapName)) {
+            store.removeMap(mapName);
+        }
+        store.renameMap(bulk, mapName);
+        store.commit();
+        final long size = bulk.sizeAsLong();
+        LOG.info("Bulk-loaded {} entries ({} pairs, {} runs) into {} in {} ms.",
+                size, added, runs.size() + 1, mapName, System.currentTimeMillis() - start);
+        return size;
+    }
+
+    /**
+     * Deletes remaining runs, e.g. if {@link #finish()} wasn't called.
+     */
+    @Override
+    public void close() {
+        deleteRuns();
+    }
+
+    private MVMap<String, String> openMap(String name) {
+        return store.openMap(name, new MVMap.Builder<String, String>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE));
+    }
+
+    private void spill() throws IOException {
+        // stable, so equal keys keep the order they were added in
+        buffer.sort((a, b) -> a[0].compareTo(b[0]));
+        final Path run = Files.createTempFile(tmpDir, mapName + "-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (String[] pair : buffer) {
+                writeString(out, pair[0]);
+                writeString(out, pair[1]);
+            }
+        }
+        LOG.debug("Spilled {} pairs of {} to {}.", buffer.size(), mapName, run);
+        buffer.clear();
+        bufferMemory = 0;
+    }
+
+    private void deleteRuns() {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                LOG.warn("Could not delete {}. {}", run, e.getMessage());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the pairs of a spilled run.
+     */
+    private static class RunReader implements Iterator<String[]> {
+
+        private final DataInputStream in;
+        private String[] next;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+            this.next = read();
+        }
+
+        private String[] read() throws IOException {
+            final int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            final String key = readString(length);
+            return new String[]{key, readString(in.readInt())};
+        }
+
+        private String readString(int length) throws IOException {
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String[] next() {
+            final String[] current = next;
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read run", e);
+            }
+            return current;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing
+            }
+        }
+    }
+
+    private static class Head {
+
+        private final String[] pair;
+        private final int source;
+
+        Head(String[] pair, int source) {
+            this.pair = pair;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters and histograms of a run, shared by all threads. They are
+ * published via JMX as <code>de.ddb.beacons:type=Metrics</code> and written
+ * as a JSON report at the end of a run. Times are counted in nanoseconds
+ * (names ending with <code>Nanos</code>).
+ *
+ * @author Michael Büchner
+ */
+public class Metrics implements MetricsMXBean {
+
+    private final static Logger LOG = LoggerFactory.getLogger(Metrics.class);
+    private final static String OBJECT_NAME = "de.ddb.beacons:type=Metrics";
+
+    // names of counters used by several classes
+    public final static String ENTITIES = "dump.entities";
+    public final static String CACHE_HITS = "entityFacts.cacheHits";
+    public final static String CACHE_MISSES = "entityFacts.cacheMisses";
+
+    private static Metrics metrics = null;
+
+    private final Map<String, LongAdder> counters;
+    private final Map<String, Histogram> histograms;
+    private final AtomicLong firstEntityNanos;
+
+    private Metrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+        this.firstEntityNanos = new AtomicLong();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            LOG.warn("Could not register {}. {}", OBJECT_NAME, ex.getMessage());
+        }
+    }
+
+    public synchronized static Metrics get() {
+        if (metrics == null) {
+            metrics = new Metrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * @param name the name of the counter
+     * @return the counter (created on first use)
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * @param name the name of the histogram
+     * @return the histogram (created on first use)
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Counts processed entities of the dump.
+     *
+     * @param count number of entities
+     */
+    public void countEntities(long count) {
+        firstEntityNanos.compareAndSet(0, System.nanoTime());
+        counter(ENTITIES).add(count);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        final Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getHistograms() {
+        final Map<String, Double> values = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogram.summary().forEach((statistic, value) -> values.put(name + "." + statistic, value)));
+        return values;
+    }
+
+    @Override
+    public double getEntityFactsCacheHitRatio() {
+        final long hits = counter(CACHE_HITS).sum();
+        final long total = hits + counter(CACHE_MISSES).sum();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    @Override
+    public double getEntityRate() {
+        final long first = firstEntityNanos.get();
+        final long nanos = System.nanoTime() - first;
+        return first != 0 && nanos > 0 ? counter(ENTITIES).sum() * 1e9 / nanos : 0;
+    }
+
+    /**
+     * Writes all metrics and the statistics of the finished phases (see
+     * {@link PhaseStats}) as JSON.
+     *
+     * @param file the report file
+     * @throws IOException
+     */
+    public void writeReport(Path file) throws IOException {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("counters", getCounters());
+        final Map<String, Map<String, Double>> histogramReport = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramReport.put(name, histogram.summary()));
+        report.put("histograms", histogramReport);
+        report.put("entityFactsCacheHitRatio", getEntityFactsCacheHitRatio());
+        report.put("entityRate", getEntityRate());
+        final List<Map<String, Object>> phases = new ArrayList<>();
+        for (PhaseStats phase : PhaseStats.getFinished()) {
+            final Map<String, Object> p = new LinkedHashMap<>();
+            p.put("name", phase.getName());
+            p.put("wallMillis", phase.getWallMillis());
+            p.put("count", phase.getCount());
+            p.put("unit", phase.getUnit());
+            p.put("rate", phase.getRate());
+            p.put("gcMillis", phase.getGcMillis());
+            p.put("peakRssBytes", phase.getPeakRss());
+            phases.add(p);
+        }
+        report.put("phases", phases);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        LOG.info("Wrote metrics to {}.", file);
+    }
+
+    /**
+     * Histogram of durations with logarithmic buckets (powers of two
+     * microseconds). Percentiles are the upper bounds of their buckets.
+     */
+    public static class Histogram {
+
+        private final static int BUCKETS = 40;
+
+        private final LongAdder[] buckets;
+        private final LongAdder count;
+        private final LongAdder sum;
+        private final LongAccumulator max;
+
+        Histogram() {
+            this.buckets = new LongAdder[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                buckets[i] = new LongAdder();
+            }
+            this.count = new LongAdder();
+            this.sum = new LongAdder();
+            this.max = new LongAccumulator(Math::max, 0);
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos the duration in nanoseconds
+         */
+        public void record(long nanos) {
+            final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+            count.increment();
+            sum.add(micros);
+            max.accumulate(micros);
+        }
+
+        /**
+         * @return count, mean, p50, p90, p99 and max (times in milliseconds)
+         */
+        public Map<String, Double> summary() {
+            final long n = count.sum();
+            final Map<String, Double> summary = new LinkedHashMap<>();
+            summary.put("count", (double) n);
+            summary.put("meanMillis", n > 0 ? sum.sum() / 1000.0 / n : 0);
+            summary.put("p50Millis", percentile(n, 0.5));
+            summary.put("p90Millis", percentile(n, 0.9));
+            summary.put("p99Millis", percentile(n, 0.99));
+            summary.put("maxMillis", max.get() / 1000.0);
+            return summary;
+        }
+
+        private double percentile(long n, double quantile) {
+            if (n == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(n * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get()) / 1000.0;
+                }
+            }
+            return max.get() / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics} (<code>de.ddb.beacons:type=Metrics</code>).
+ *
+ * @author Michael Büchner
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return all counters by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return count, mean, percentiles and maximum of all histograms, named
+     * <code>&lt;histogram&gt;.&lt;statistic&gt;</code>
+     */
+    Map<String, Double> getHistograms();
+
+    /**
+     * @return the share of entity type lookups answered by the local
+     * database
+     */
+    double getEntityFactsCacheHitRatio();
+
+    /**
+     * @return entities per second since the first counted entity
+     */
+    double getEntityRate();
+}
@@ -0,0 +1,231 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An output file of {@link OutputWriter}. Lines are collected in batches on
+ * the calling thread, encoded to UTF-8 and written on the writer thread.
+ * Nothing is flushed per line. An instance must only be used by one thread.
+ *
+ * @author Michael Büchner
+ */
+public class OutputFile implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(OutputFile.class);
+
+    private final OutputWriter writer;
+    private final Path path;
+    private final int batchSize;
+    private String[] lines;
+    private int count;
+    private boolean closed;
+
+    // only used by the writer thread
+    private final FileChannel file;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final boolean fsync;
+    private final long opened;
+    private long bytesWritten;
+    private long linesWritten;
+    private IOException error;
+
+    OutputFile(OutputWriter writer, Path path, FileChannel file, WritableByteChannel channel, int batchSize, int bufferSize, boolean fsync) {
+        this.writer = writer;
+        this.path = path;
+        this.batchSize = batchSize;
+        this.lines = new String[batchSize];
+        this.count = 0;
+        this.closed = false;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.fsync = fsync;
+        this.opened = System.nanoTime();
+        this.bytesWritten = 0;
+        this.linesWritten = 0;
+        this.error = null;
+    }
+
+    /**
+     * Writes a line. The line break is added.
+     *
+     * @param line the line
+     * @throws IOException if the file is closed or the writer was interrupted
+     */
+    public void writeLine(String line) throws IOException {
+        if (closed) {
+            throw new IOException(path + " is closed.");
+        }
+        lines[count++] = line;
+        if (count == batchSize) {
+            writer.submit(new OutputWriter.Batch(this, lines, count, null));
+            lines = new String[batchSize];
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the remaining lines and closes the file. Waits until everything
+     * is written (and synced to disk if outputFsync is enabled).
+     *
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        writer.submit(new OutputWriter.Batch(this, lines, count, done));
+        lines = null;
+        try {
+            done.join();
+        } catch (CompletionException ex) {
+            if (error == null) {
+                throw new IOException("Could not write " + path + ".", ex.getCause());
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    void write(String[] batch, int length) {
+        if (error != null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < length; ++i) {
+                final CharBuffer in = CharBuffer.wrap(batch[i]);
+                while (true) {
+                    final CoderResult result = encoder.encode(in, buffer, true);
+                    if (result.isOverflow()) {
+                        drain();
+                    } else if (result.isError()) {
+                        result.throwException();
+                    } else {
+                        break;
+                    }
+                }
+                encoder.reset();
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                buffer.put((byte) '\n');
+            }
+            linesWritten += length;
+        } catch (IOException ex) {
+            LOG.error("Could not write to {}. {}", path, ex.getMessage());
+            error = ex;
+        }
+    }
+
+    void finish() {
+        try {
+            if (error == null) {
+                drain();
+                if (channel != file) {
+                    // writes the remaining compressed blocks
+                    channel.close();
+                }
+                if (fsync) {
+                    file.force(true);
+                }
+            }
+            file.close();
+        } catch (IOException ex) {
+            LOG.error("Could not close {}. {}", path, ex.getMessage());
+            if (error == null) {
+                error = ex;
+            }
+        }
+        final double seconds = Math.max(1, System.nanoTime() - opened) / 1e9;
+        final String name = path.getFileName().toString();
+        Metrics.get().counter("output." + name + ".lines").add(linesWritten);
+        Metrics.get().counter("output." + name + ".bytes").add(bytesWritten);
+        Metrics.get().counter("output.bytes").add(bytesWritten);
+        if (channel != file) {
+            long size = -1;
+            try {
+                size = Files.size(path);
+                Metrics.get().counter("output." + name + ".compressedBytes").add(size);
+            } catch (IOException ex) {
+                // only for the statistics
+            }
+            LOG.info("Wrote {} MiB ({} MiB compressed) to {} in {} s ({} MiB/s).", bytesWritten >> 20, size >> 20,
+                    path.getFileName(), Math.round(seconds), String.format("%.1f", bytesWritten / seconds / (1 << 20)));
+        } else {
+            LOG.info("Wrote {} MiB to {} in {} s ({} MiB/s).", bytesWritten >> 20, path.getFileName(),
+                    Math.round(seconds), String.format("%.1f", bytesWritten / seconds / (1 << 20)));
+        }
+    }
+
+    /**
+     * Records an unexpected error of the writer thread. Nothing more is
+     * written to the file. If it was the last batch, the file is closed.
+     */
+    void fail(RuntimeException ex, boolean last) {
+        LOG.error("Could not write to {}. {}", path, ex.toString());
+        if (error == null) {
+            error = new IOException("Could not write " + path + ".", ex);
+        }
+        if (last) {
+            try {
+                file.close();
+            } catch (IOException | RuntimeException e) {
+                // already failed
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
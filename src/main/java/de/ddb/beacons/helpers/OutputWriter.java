@@ -0,0 +1,172 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the output files of all runners on one dedicated thread. The runners
+ * hand over batches of lines (see {@link OutputFile}), the writer thread
+ * encodes them into large direct buffers and writes them with a
+ * {@link FileChannel}. So the thread processing the dump doesn't spend its
+ * time with encoding, compression and system calls. Compressed files are
+ * compressed block by block on a separate pool of threads.
+ *
+ * @author Michael Büchner
+ */
+public class OutputWriter {
+
+    private final static Logger LOG = LoggerFactory.getLogger(OutputWriter.class);
+
+    private static OutputWriter ow;
+    private final BlockingQueue<Batch> queue;
+    private final int batchSize;
+    private final int bufferSize;
+    private final boolean fsync;
+    private final int compressionThreads;
+    private Thread thread;
+    private ExecutorService compressionPool;
+
+    private OutputWriter() {
+        batchSize = Math.max(1, Configuration.get().getIntValue("outputBatchLines", 4096));
+        bufferSize = Math.max(1 << 16, Configuration.get().getIntValue("outputBufferSize", 4 << 20));
+        fsync = Boolean.parseBoolean(Configuration.get().getValue("outputFsync"));
+        queue = new ArrayBlockingQueue<>(Math.max(1, Configuration.get().getIntValue("outputQueueBatches", 64)));
+        compressionThreads = Math.max(1, Configuration.get().getIntValue("compressionThreads", 4));
+        thread = null;
+        compressionPool = null;
+    }
+
+    public synchronized static OutputWriter get() {
+        if (ow == null) {
+            OutputWriter.ow = new OutputWriter();
+        }
+        return OutputWriter.ow;
+    }
+
+    /**
+     * Creates (or truncates) an uncompressed output file.
+     *
+     * @param path the file
+     * @return the file to write lines to
+     * @throws IOException
+     */
+    public OutputFile open(Path path) throws IOException {
+        return open(path, Compression.NONE);
+    }
+
+    /**
+     * Creates (or truncates) an output file.
+     *
+     * @param path the file (the suffix of the compression is appended)
+     * @param compression the compression
+     * @return the file to write lines to
+     * @throws IOException
+     */
+    public synchronized OutputFile open(Path path, Compression compression) throws IOException {
+        if (thread == null) {
+            thread = new Thread(this::run, "output-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        final Path file = Paths.get(path.toString() + compression.getSuffix());
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        WritableByteChannel target = channel;
+        if (compression != Compression.NONE) {
+            if (compressionPool == null) {
+                final AtomicInteger threadCount = new AtomicInteger();
+                compressionPool = Executors.newFixedThreadPool(compressionThreads, r -> {
+                    final Thread t = new Thread(r, "output-compressor-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            target = new ParallelCompressingChannel(channel, compression, compressionPool, compressionThreads * 2);
+        }
+        return new OutputFile(this, file, channel, target, batchSize, bufferSize, fsync);
+    }
+
+    void submit(Batch batch) throws IOException {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Writing was interrupted.", ex);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            final Batch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException ex) {
+                LOG.warn("Output writer was interrupted.");
+                return;
+            }
+            try {
+                batch.file.write(batch.lines, batch.count);
+                if (batch.closed != null) {
+                    batch.file.finish();
+                    batch.closed.complete(null);
+                }
+            } catch (RuntimeException ex) {
+                // keep the writer thread alive for the other files, close() reports the error
+                batch.file.fail(ex, batch.closed != null);
+                if (batch.closed != null) {
+                    batch.closed.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines of one file for the writer thread. If <code>closed</code> is set,
+     * it's the last batch of the file.
+     */
+    static class Batch {
+
+        private final OutputFile file;
+        private final String[] lines;
+        private final int count;
+        private final CompletableFuture<Void> closed;
+
+        Batch(OutputFile file, String[] lines, int count, CompletableFuture<Void> closed) {
+            this.file = file;
+            this.lines = lines;
+            this.count = count;
+            this.closed = closed;
+        }
+    }
+}
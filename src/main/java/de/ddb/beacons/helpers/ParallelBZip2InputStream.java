@@ -0,0 +1,449 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Multi-threaded bzip2 decompression (like lbzip2 or pbzip2). A scanner thread
+ * searches the compressed input for the bit-aligned block and end-of-stream
+ * magic numbers, every block found is wrapped into a standalone single-block
+ * bzip2 stream and inflated on a worker pool. The decompressed blocks are
+ * returned in their original order. Concatenated streams are supported.
+ * <p>
+ * In rare cases the block magic number shows up inside compressed data. The
+ * two halves of such a falsely split block can't be decoded on their own, so
+ * they are merged with the following segment and decoded again.
+ *
+ * @author Michael Büchner
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ParallelBZip2InputStream.class);
+
+    private final static long BLOCK_MAGIC = 0x314159265359L;
+    private final static long EOS_MAGIC = 0x177245385090L;
+    private final static long MAGIC_MASK = 0xFFFFFFFFFFFFL;
+    private final static int MAGIC_BITS = 48;
+    // "BZh9", the largest block size is sufficient for all blocks
+    private final static long STREAM_HEADER = 0x425A6839L;
+    private final static int MAX_MERGES = 4;
+    private final static Block END = new Block(null, null);
+
+    private final InputStream in;
+    private final ExecutorService pool;
+    private final BlockingQueue<Block> blocks;
+    private final Thread scanner;
+    private volatile IOException scanError;
+    private byte[] current;
+    private int pos;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param in the compressed input (closed with this stream)
+     * @param threads number of decompressing threads
+     */
+    public ParallelBZip2InputStream(InputStream in, int threads) {
+        this.in = in;
+        final int nThreads = Math.max(1, threads);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(nThreads, r -> {
+            final Thread t = new Thread(r, "bzip2-worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.blocks = new ArrayBlockingQueue<>(nThreads * 3);
+        this.current = new byte[0];
+        this.pos = 0;
+        this.eof = false;
+        this.closed = false;
+        this.scanner = new Thread(this::runScanner, "bzip2-scanner");
+        this.scanner.setDaemon(true);
+        this.scanner.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= current.length && !nextBlock()) {
+            return -1;
+        }
+        return current[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos >= current.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scanner.interrupt();
+        pool.shutdownNow();
+        // the scanner may still be reading from the stream
+        try {
+            scanner.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Closing was interrupted.", ex);
+        }
+        in.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        final Block block = take();
+        if (block == END) {
+            eof = true;
+            if (scanError != null) {
+                throw scanError;
+            }
+            return false;
+        }
+        try {
+            current = block.data.get();
+        } catch (ExecutionException ex) {
+            current = recover(block.segment, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Decompression was interrupted.", ex);
+        }
+        pos = 0;
+        return true;
+    }
+
+    private byte[] recover(Segment segment, Throwable cause) throws IOException {
+        Segment merged = segment;
+        for (int i = 0; i < MAX_MERGES; ++i) {
+            final Block next = take();
+            if (next == END) {
+                eof = true;
+                break;
+            }
+            merged = merged.append(next.segment);
+            try {
+                final byte[] data = decode(merged);
+                LOG.warn("Merged {} bzip2 block(s) which were split at a false block marker.", i + 2);
+                return data;
+            } catch (IOException ex) {
+                // try again with one more segment
+            }
+        }
+        throw new IOException("Corrupt bzip2 block.", cause);
+    }
+
+    private Block take() throws IOException {
+        try {
+            return blocks.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Decompression was interrupted.", ex);
+        }
+    }
+
+    private void runScanner() {
+        try {
+            scan();
+        } catch (IOException ex) {
+            scanError = ex;
+        } catch (InterruptedException ex) {
+            // stream was closed
+            return;
+        }
+        try {
+            blocks.put(END);
+        } catch (InterruptedException ex) {
+            // stream was closed
+        }
+    }
+
+    /**
+     * Finds the block boundaries and submits every block to the pool.
+     */
+    private void scan() throws IOException, InterruptedException {
+        final byte[] readBuf = new byte[1 << 20];
+        // compressed bytes of the current block, buf[0] is byte number bufByte
+        byte[] buf = new byte[1 << 20];
+        int bufLen = 0;
+        long bufByte = 0;
+        // bit position of the current block's magic or -1 before the first block
+        long blockStart = -1;
+        // bit position of an end-of-stream magic after the current block or -1
+        long streamEnd = -1;
+        long window = 0;
+        long byteCount = 0;
+        // an empty bzip2 stream has an end-of-stream magic, but no block
+        boolean emptyStream = false;
+
+        int n;
+        while ((n = in.read(readBuf)) >= 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            for (int i = 0; i < n; ++i) {
+                if (bufLen == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                buf[bufLen++] = readBuf[i];
+                window = (window << 8) | (readBuf[i] & 0xFF);
+                ++byteCount;
+
+                for (int shift = 7; shift >= 0; --shift) {
+                    final long end = byteCount * 8 - shift;
+                    if (end < MAGIC_BITS) {
+                        continue;
+                    }
+                    final long candidate = (window >>> shift) & MAGIC_MASK;
+                    final long start = end - MAGIC_BITS;
+                    if (candidate == EOS_MAGIC) {
+                        if (blockStart >= 0 && streamEnd < 0) {
+                            streamEnd = start;
+                        } else if (blockStart < 0) {
+                            emptyStream = true;
+                        }
+                    } else if (candidate == BLOCK_MAGIC) {
+                        if (blockStart >= 0) {
+                            submit(Segment.of(buf, bufByte, blockStart, streamEnd < 0 ? start : streamEnd, start));
+                        }
+                        blockStart = start;
+                        streamEnd = -1;
+
+                        // drop everything before the new block
+                        final int drop = (int) ((start >>> 3) - bufByte);
+                        System.arraycopy(buf, drop, buf, 0, bufLen - drop);
+                        bufLen -= drop;
+                        bufByte += drop;
+                    }
+                }
+            }
+
+            if (blockStart < 0 && bufLen > 8) {
+                // before the first block only the bytes of a beginning magic are needed
+                final int drop = bufLen - 8;
+                System.arraycopy(buf, drop, buf, 0, 8);
+                bufLen = 8;
+                bufByte += drop;
+            }
+        }
+
+        if (blockStart >= 0) {
+            if (streamEnd < 0) {
+                throw new IOException("Unexpected end of bzip2 stream.");
+            }
+            submit(Segment.of(buf, bufByte, blockStart, streamEnd, streamEnd));
+        } else if (!emptyStream) {
+            throw new IOException("No bzip2 block found. The file is truncated or not bzip2 compressed.");
+        }
+    }
+
+    private void submit(Segment segment) throws InterruptedException {
+        blocks.put(new Block(segment, pool.submit(() -> decode(segment))));
+    }
+
+    /**
+     * Decodes a block. If the block was followed by an end-of-stream magic,
+     * the block is decoded up to that magic first. If that fails, the magic was
+     * part of the compressed data and the block is decoded up to the next
+     * block magic.
+     */
+    static byte[] decode(Segment segment) throws IOException {
+        try {
+            return decode(segment, segment.bitLength);
+        } catch (IOException ex) {
+            if (segment.maxBitLength == segment.bitLength) {
+                throw ex;
+            }
+            return decode(segment, segment.maxBitLength);
+        }
+    }
+
+    /**
+     * Decodes the first bits of a segment by wrapping them into a
+     * single-block stream. The combined CRC of such a stream equals the CRC of
+     * its block.
+     */
+    private static byte[] decode(Segment segment, long bitLength) throws IOException {
+        final BitWriter w = new BitWriter((int) (bitLength >>> 3) + 32);
+        w.write(STREAM_HEADER, 32);
+        segment.copyTo(w, bitLength);
+        w.write(EOS_MAGIC, MAGIC_BITS);
+        w.write(segment.blockCrc(), 32);
+        try (BZip2CompressorInputStream bz = new BZip2CompressorInputStream(new ByteArrayInputStream(w.toByteArray()))) {
+            return bz.readAllBytes();
+        }
+    }
+
+    private static class Block {
+
+        private final Segment segment;
+        private final Future<byte[]> data;
+
+        Block(Segment segment, Future<byte[]> data) {
+            this.segment = segment;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The bits of one compressed block, starting with its magic number. The
+     * block ends after <code>bitLength</code> bits, unless the end-of-stream
+     * magic there was a false one. Then it ends after
+     * <code>maxBitLength</code> bits.
+     */
+    static class Segment {
+
+        private final byte[] data;
+        private final int startBit;
+        private final long bitLength;
+        private final long maxBitLength;
+
+        Segment(byte[] data, int startBit, long bitLength, long maxBitLength) {
+            this.data = data;
+            this.startBit = startBit;
+            this.bitLength = bitLength;
+            this.maxBitLength = maxBitLength;
+        }
+
+        static Segment of(byte[] buf, long bufByte, long fromBit, long toBit, long maxToBit) {
+            final int from = (int) ((fromBit >>> 3) - bufByte);
+            final int to = (int) (((maxToBit + 7) >>> 3) - bufByte);
+            return new Segment(Arrays.copyOfRange(buf, from, to), (int) (fromBit & 7), toBit - fromBit, maxToBit - fromBit);
+        }
+
+        long blockCrc() {
+            long crc = 0;
+            for (int i = 0; i < 32; ++i) {
+                final long bit = startBit + MAGIC_BITS + i;
+                crc = (crc << 1) | ((data[(int) (bit >>> 3)] >>> (7 - (bit & 7))) & 1);
+            }
+            return crc;
+        }
+
+        void copyTo(BitWriter w, long bits) {
+            long remaining = bits;
+            int i = 0;
+            if (startBit != 0) {
+                final int avail = 8 - startBit;
+                final int take = (int) Math.min(avail, remaining);
+                w.write(((data[0] & 0xFF) >>> (avail - take)) & ((1 << take) - 1), take);
+                remaining -= take;
+                i = 1;
+            }
+            while (remaining >= 8) {
+                w.write(data[i++] & 0xFF, 8);
+                remaining -= 8;
+            }
+            if (remaining > 0) {
+                w.write((data[i] & 0xFF) >>> (8 - remaining), (int) remaining);
+            }
+        }
+
+        /**
+         * Joins a block which was split at a false block magic with the
+         * following segment.
+         */
+        Segment append(Segment other) {
+            final BitWriter w = new BitWriter((int) ((maxBitLength + other.maxBitLength) >>> 3) + 2);
+            copyTo(w, maxBitLength);
+            other.copyTo(w, other.maxBitLength);
+            return new Segment(w.toByteArray(), 0, maxBitLength + other.bitLength, maxBitLength + other.maxBitLength);
+        }
+    }
+
+    /**
+     * Writes bit sequences MSB first.
+     */
+    static class BitWriter {
+
+        private byte[] buf;
+        private int len;
+        private long acc;
+        private int accBits;
+
+        BitWriter(int capacity) {
+            this.buf = new byte[Math.max(16, capacity)];
+        }
+
+        void write(long value, int bits) {
+            if (bits > 32) {
+                write(value >>> 32, bits - 32);
+                write(value, 32);
+                return;
+            }
+            acc = (acc << bits) | (value & ((1L << bits) - 1));
+            accBits += bits;
+            while (accBits >= 8) {
+                if (len == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                accBits -= 8;
+                buf[len++] = (byte) (acc >>> accBits);
+            }
+        }
+
+        byte[] toByteArray() {
+            final byte[] out = Arrays.copyOf(buf, len + (accBits > 0 ? 1 : 0));
+            if (accBits > 0) {
+                out[len] = (byte) (acc << (8 - accBits));
+            }
+            return out;
+        }
+    }
+}
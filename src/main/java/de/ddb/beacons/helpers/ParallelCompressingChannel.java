@@ -0,0 +1,144 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses every block written to it independently on a thread pool (like
+ * pigz) and writes the results in order. Concatenated gzip members and zstd
+ * frames are valid files, which every decompressor reads as one stream.
+ * Closing this channel doesn't close the target channel.
+ *
+ * @author Michael Büchner
+ */
+public class ParallelCompressingChannel implements WritableByteChannel {
+
+    private final static int ZSTD_LEVEL = 3;
+
+    private final WritableByteChannel target;
+    private final Compression compression;
+    private final ExecutorService pool;
+    private final int maxBlocks;
+    private final Deque<Future<byte[]>> blocks;
+    private boolean open;
+
+    /**
+     * Constructor.
+     *
+     * @param target the channel the compressed data is written to
+     * @param compression {@link Compression#GZIP} or {@link Compression#ZSTD}
+     * @param pool the threads compressing the blocks
+     * @param maxBlocks maximum number of blocks being compressed at once
+     */
+    public ParallelCompressingChannel(WritableByteChannel target, Compression compression, ExecutorService pool, int maxBlocks) {
+        if (compression == Compression.NONE) {
+            throw new IllegalArgumentException("Compression must not be NONE.");
+        }
+        this.target = target;
+        this.compression = compression;
+        this.pool = pool;
+        this.maxBlocks = Math.max(1, maxBlocks);
+        this.blocks = new ArrayDeque<>();
+        this.open = true;
+    }
+
+    /**
+     * Compresses the remaining bytes of the buffer as one block.
+     *
+     * @param src the block
+     * @return the number of bytes consumed (always all remaining bytes)
+     * @throws IOException
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        final byte[] block = new byte[src.remaining()];
+        src.get(block);
+        blocks.add(pool.submit(() -> compress(block)));
+
+        // write finished blocks, but wait if too many are in flight
+        while (!blocks.isEmpty() && (blocks.size() > maxBlocks || blocks.peek().isDone())) {
+            writeNextBlock();
+        }
+        return block.length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Writes all remaining blocks.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            while (!blocks.isEmpty()) {
+                writeNextBlock();
+            }
+        } finally {
+            blocks.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        final byte[] compressed;
+        try {
+            compressed = blocks.poll().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compression was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Could not compress block.", ex.getCause());
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(compressed);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private byte[] compress(byte[] block) throws IOException {
+        if (compression == Compression.ZSTD) {
+            return Zstd.compress(block, ZSTD_LEVEL);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(block.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 1 << 16)) {
+            gz.write(block);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,387 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.LexemeDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.dumpfiles.DumpContentType;
+import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFile;
+import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFileManager;
+
+/**
+ * Processes a Wikidata JSON dump with several threads. One reader thread cuts
+ * the decompressed dump into line-aligned chunks, a pool of workers
+ * deserializes the entity documents of each chunk and the calling thread hands
+ * them to the registered {@link EntityDocumentProcessor}s in dump order. The
+ * processors therefore see exactly the same sequence of documents as with
+ * Wikidata Toolkit's single-threaded JSON dump processing and don't need to be
+ * thread-safe.
+ * <p>
+ * A {@link CheckpointListener} is told the offset in the decompressed dump up
+ * to which all documents were processed, so an interrupted run can continue
+ * there (see {@link #setStartOffset(long)}).
+ *
+ * @author Michael Büchner
+ */
+public class ParallelDumpProcessor {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ParallelDumpProcessor.class);
+    // defaults of dumpWorkers and dumpChunkSize
+    private final static int DEFAULT_WORKERS = 4;
+    private final static int DEFAULT_CHUNK_SIZE = 4 << 20;
+    private final static Future<Documents> END_OF_DUMP = CompletableFuture.completedFuture(new Documents(Collections.emptyList(), -1));
+
+    private final int workers;
+    private final int chunkSize;
+    private final ObjectReader documentReader;
+    private final List<EntityDocumentProcessor> entityDocumentProcessors;
+    private DumpPrefilter prefilter;
+    private long startOffset;
+    private CheckpointListener checkpointListener;
+    private long checkpointInterval;
+
+    /**
+     * Constructor.
+     *
+     * @param workers number of threads deserializing entity documents
+     * @param chunkSize size of the chunks handed to the workers in bytes
+     */
+    public ParallelDumpProcessor(int workers, int chunkSize) {
+        this.workers = Math.max(1, workers);
+        this.chunkSize = Math.max(1 << 16, chunkSize);
+        this.documentReader = new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+        this.entityDocumentProcessors = new ArrayList<>();
+        this.prefilter = null;
+        this.startOffset = 0;
+        this.checkpointListener = null;
+        this.checkpointInterval = Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of threads deserializing a dump (dumpWorkers of
+     * config.xml, 0 means single-threaded processing by Wikidata Toolkit)
+     */
+    public static int getConfiguredWorkers() {
+        return Configuration.get().getIntValue("dumpWorkers", DEFAULT_WORKERS);
+    }
+
+    /**
+     * @return the size of the chunks handed to the workers in bytes
+     * (dumpChunkSize of config.xml)
+     */
+    public static int getConfiguredChunkSize() {
+        return Configuration.get().getIntValue("dumpChunkSize", DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Skips the beginning of the decompressed dump, e.g. to continue at a
+     * checkpoint. The offset must be at the beginning of a line.
+     *
+     * @param startOffset offset in the decompressed dump in bytes
+     */
+    public void setStartOffset(long startOffset) {
+        this.startOffset = Math.max(0, startOffset);
+    }
+
+    /**
+     * Sets a listener which is called (on the processing thread) whenever
+     * another interval of the dump was processed completely.
+     *
+     * @param checkpointListener the listener or <code>null</code>
+     * @param checkpointInterval bytes of the decompressed dump between two
+     * checkpoints
+     */
+    public void setCheckpointListener(CheckpointListener checkpointListener, long checkpointInterval) {
+        this.checkpointListener = checkpointListener;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    /**
+     * Sets a prefilter which skips dump lines before they are deserialized.
+     * Only use it if all registered processors ignore the skipped entities.
+     *
+     * @param prefilter the prefilter or <code>null</code>
+     */
+    public void setPrefilter(DumpPrefilter prefilter) {
+        this.prefilter = prefilter;
+    }
+
+    /**
+     * Registers a processor. Processors are called in the order of their
+     * registration.
+     *
+     * @param entityDocumentProcessor the processor
+     */
+    public void registerEntityDocumentProcessor(EntityDocumentProcessor entityDocumentProcessor) {
+        entityDocumentProcessors.add(entityDocumentProcessor);
+    }
+
+    /**
+     * Processes the most recent JSON dump (may trigger a download where
+     * needed).
+     *
+     * @param dumpProcessingController controller to find the dump with
+     * @param downloadDirectory the download directory of the controller
+     * @throws IOException
+     */
+    public void processMostRecentJsonDump(DumpProcessingController dumpProcessingController, String downloadDirectory) throws IOException {
+        processDumpFile(dumpProcessingController.getMostRecentDump(DumpContentType.JSON), downloadDirectory);
+    }
+
+    /**
+     * Processes a dump file (may trigger a download where needed). The
+     * downloaded file is decompressed by {@link DumpStreams}.
+     *
+     * @param dumpFile the JSON dump file
+     * @param downloadDirectory the download directory of the controller which
+     * found the dump file
+     * @throws IOException
+     */
+    public void processDumpFile(MwDumpFile dumpFile, String downloadDirectory) throws IOException {
+        LOG.info("Processing JSON dump file {} with {} worker(s)...", dumpFile, workers);
+        dumpFile.prepareDumpFile();
+
+        // same layout as Wikidata Toolkit's download directory
+        final Path localFile = Paths.get(downloadDirectory,
+                WmfDumpFileManager.DOWNLOAD_DIRECTORY_NAME,
+                dumpFile.getProjectName(),
+                WmfDumpFile.getDumpFileDirectoryName(dumpFile.getDumpContentType(), dumpFile.getDateStamp()),
+                WmfDumpFile.getDumpFileName(dumpFile.getDumpContentType(), dumpFile.getProjectName(), dumpFile.getDateStamp()));
+
+        if (Files.isRegularFile(localFile)) {
+            try (InputStream in = DumpStreams.open(localFile)) {
+                process(in);
+            }
+        } else {
+            LOG.warn("Could not find {}. Using single-threaded decompression.", localFile);
+            try (InputStream in = dumpFile.getDumpFileStream()) {
+                process(in);
+            }
+        }
+    }
+
+    /**
+     * Processes a decompressed JSON dump, i.e. a JSON array with one entity
+     * document per line.
+     *
+     * @param in the decompressed dump (not closed by this method)
+     * @throws IOException
+     */
+    public void process(InputStream in) throws IOException {
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            final Thread t = new Thread(r, "dump-worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (startOffset > 0) {
+            LOG.info("Skipping {} MiB of JSON dump...", startOffset >> 20);
+            in.skipNBytes(startOffset);
+        }
+
+        // bounded, so the reader can't run away from the processors
+        final BlockingQueue<Future<Documents>> pending = new ArrayBlockingQueue<>(workers * 4);
+        final AtomicReference<IOException> readError = new AtomicReference<>();
+        final LineChunker chunker = new LineChunker(in, chunkSize, startOffset);
+        long lastCheckpoint = startOffset;
+
+        final LongAdder readNanos = Metrics.get().counter("dump.readNanos");
+        final LongAdder processNanos = Metrics.get().counter("dump.processNanos");
+        final Thread reader = new Thread(() -> {
+            try {
+                LineChunker.Chunk chunk;
+                while (true) {
+                    // reading includes the decompression
+                    final long start = System.nanoTime();
+                    chunk = chunker.next();
+                    readNanos.add(System.nanoTime() - start);
+                    if (chunk == null) {
+                        break;
+                    }
+                    final LineChunker.Chunk job = chunk;
+                    pending.put(pool.submit(() -> deserialize(job)));
+                }
+            } catch (IOException ex) {
+                readError.set(ex);
+            } catch (InterruptedException ex) {
+                // processing was aborted
+                return;
+            }
+            try {
+                pending.put(END_OF_DUMP);
+            } catch (InterruptedException ex) {
+                // processing was aborted
+            }
+        }, "dump-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            while (true) {
+                final Future<Documents> future = pending.take();
+                if (future == END_OF_DUMP) {
+                    break;
+                }
+                final Documents documents = future.get();
+                final long start = System.nanoTime();
+                for (EntityDocument document : documents.documents) {
+                    dispatch(document);
+                }
+                processNanos.add(System.nanoTime() - start);
+                if (checkpointListener != null && documents.endOffset - lastCheckpoint >= checkpointInterval) {
+                    checkpointListener.checkpoint(documents.endOffset);
+                    lastCheckpoint = documents.endOffset;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Processing of dump was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Could not deserialize dump.", ex.getCause());
+        } finally {
+            reader.interrupt();
+            pool.shutdownNow();
+        }
+
+        if (readError.get() != null) {
+            throw readError.get();
+        }
+        LOG.info("Read {} MiB of JSON dump.", chunker.getBytesRead() >> 20);
+        Metrics.get().counter("dump.bytes").add(chunker.getBytesRead());
+        if (prefilter != null && prefilter.getMode() != DumpPrefilter.Mode.OFF) {
+            LOG.info("Prefilter ({}) skipped {} and passed {} lines.", prefilter.getMode(), prefilter.getSkipped(), prefilter.getAccepted());
+            Metrics.get().counter("dump.prefilterSkipped").add(prefilter.getSkipped());
+        }
+    }
+
+    private Documents deserialize(LineChunker.Chunk chunk) throws IOException {
+        final long parseStart = System.nanoTime();
+        final List<EntityDocument> documents = new ArrayList<>();
+        final int[] lines = new int[1];
+        chunk.forEachLine((data, offset, length) -> {
+            int start = offset;
+            int end = offset + length;
+            // strip whitespace and the comma separating the array elements
+            while (start < end && data[start] <= ' ') {
+                ++start;
+            }
+            while (end > start && (data[end - 1] <= ' ' || data[end - 1] == ',')) {
+                --end;
+            }
+            if (end - start <= 1) {
+                return; // empty line, '[' or ']'
+            }
+            ++lines[0];
+            if (prefilter != null && !prefilter.accept(data, start, end - start)) {
+                return;
+            }
+            try {
+                final EntityDocument document = documentReader.readValue(data, start, end - start);
+                if (document != null) {
+                    documents.add(document);
+                }
+            } catch (IOException ex) {
+                LOG.error("Failed to map JSON to entity document: {}", ex.getMessage());
+            }
+        });
+        Metrics.get().counter("dump.lines").add(lines[0]);
+        Metrics.get().counter("dump.parseNanos").add(System.nanoTime() - parseStart);
+        return new Documents(documents, chunk.getEndOffset());
+    }
+
+    private void dispatch(EntityDocument document) {
+        for (EntityDocumentProcessor entityDocumentProcessor : entityDocumentProcessors) {
+            if (document instanceof ItemDocument itemDocument) {
+                entityDocumentProcessor.processItemDocument(itemDocument);
+            } else if (document instanceof PropertyDocument propertyDocument) {
+                entityDocumentProcessor.processPropertyDocument(propertyDocument);
+            } else if (document instanceof LexemeDocument lexemeDocument) {
+                entityDocumentProcessor.processLexemeDocument(lexemeDocument);
+            } else if (document instanceof MediaInfoDocument mediaInfoDocument) {
+                entityDocumentProcessor.processMediaInfoDocument(mediaInfoDocument);
+            }
+        }
+    }
+
+    /**
+     * The entity documents of one chunk.
+     */
+    private static class Documents {
+
+        private final List<EntityDocument> documents;
+        private final long endOffset;
+
+        Documents(List<EntityDocument> documents, long endOffset) {
+            this.documents = documents;
+            this.endOffset = endOffset;
+        }
+    }
+
+    /**
+     * Is told how far the dump was processed.
+     */
+    public interface CheckpointListener {
+
+        /**
+         * @param offset offset in the decompressed dump up to which all
+         * documents were handed to the processors
+         * @throws IOException
+         */
+        void checkpoint(long offset) throws IOException;
+    }
+}
@@ -0,0 +1,168 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wall time, throughput, GC time and peak RSS of a phase of a run (e.g. dump
+ * pass, export). The peak RSS is read from <code>/proc/self/status</code>
+ * and reset at the start of a phase if the kernel allows it, otherwise it is
+ * the peak since the start of the JVM. Finished phases are kept for reports.
+ *
+ * @author Michael Büchner
+ */
+public class PhaseStats {
+
+    private final static Logger LOG = LoggerFactory.getLogger(PhaseStats.class);
+    private final static Path PROC_STATUS = Paths.get("/proc/self/status");
+    private final static Path PROC_CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+    private final static List<PhaseStats> FINISHED = new ArrayList<>();
+
+    private final String name;
+    private final long startNanos;
+    private final long startGcMillis;
+    private long wallMillis;
+    private long gcMillis;
+    private long count;
+    private String unit;
+    private long peakRss;
+
+    private PhaseStats(String name) {
+        this.name = name;
+        resetPeakRss();
+        this.startGcMillis = gcMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a phase.
+     *
+     * @param name the name of the phase
+     * @return the running phase
+     */
+    public static PhaseStats start(String name) {
+        LOG.info("Starting phase {}.", name);
+        return new PhaseStats(name);
+    }
+
+    /**
+     * Ends the phase and logs its statistics.
+     *
+     * @param count the number of processed things
+     * @param unit what was counted (e.g. "items")
+     */
+    public void end(long count, String unit) {
+        this.wallMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        this.gcMillis = gcMillis() - startGcMillis;
+        this.count = count;
+        this.unit = unit;
+        this.peakRss = readPeakRss();
+        synchronized (FINISHED) {
+            FINISHED.add(this);
+        }
+        LOG.info("Phase {} took {} ms: {} {} ({} per second), GC {} ms, peak RSS {} MiB.",
+                name, wallMillis, count, unit, String.format("%.0f", getRate()), gcMillis,
+                peakRss < 0 ? "n/a" : Long.toString(peakRss >> 20));
+    }
+
+    /**
+     * @return all finished phases in the order they ended
+     */
+    public static List<PhaseStats> getFinished() {
+        synchronized (FINISHED) {
+            return new ArrayList<>(FINISHED);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return counted things per second
+     */
+    public double getRate() {
+        return wallMillis > 0 ? count * 1000.0 / wallMillis : 0;
+    }
+
+    /**
+     * @return the peak resident set size in bytes or -1 if unknown
+     */
+    public long getPeakRss() {
+        return peakRss;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static void resetPeakRss() {
+        try {
+            // "5" resets the peak RSS (Linux 4.0 and newer)
+            Files.writeString(PROC_CLEAR_REFS, "5");
+        } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+            // keep the peak since the start of the JVM
+        }
+    }
+
+    private static long readPeakRss() {
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim()) << 10;
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            // not on Linux
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,209 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.EntityRedirectDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.LexemeDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+
+/**
+ * Opt-in profiling of processors (<code>profileProcessors</code> in the
+ * configuration). Each wrapped processor gets call count, cumulative time and
+ * a latency histogram in {@link Metrics} (<code>profile.&lt;class&gt;</code>).
+ * Calls slower than <code>profileSlowItemMillis</code> are logged with the
+ * Wikidata ID. If profiling is disabled, the processors are returned as they
+ * are.
+ *
+ * @author Michael Büchner
+ */
+public class ProcessorProfiler {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ProcessorProfiler.class);
+    private final static List<Profile> PROFILES = new ArrayList<>();
+
+    private ProcessorProfiler() {
+    }
+
+    /**
+     * @return <code>true</code> if profileProcessors is enabled
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(Configuration.get().getValue("profileProcessors"));
+    }
+
+    /**
+     * @param processor the processor
+     * @return the profiling processor or the processor itself if profiling is
+     * disabled
+     */
+    public static GndItemProcessor wrap(GndItemProcessor processor) {
+        if (!isEnabled()) {
+            return processor;
+        }
+        final Profile profile = profile(processor);
+        return item -> {
+            final long start = System.nanoTime();
+            try {
+                processor.processGndItem(item);
+            } finally {
+                profile.record(System.nanoTime() - start, item.getQid());
+            }
+        };
+    }
+
+    /**
+     * @param processor the processor
+     * @return the profiling processor or the processor itself if profiling is
+     * disabled
+     */
+    public static EntityDocumentProcessor wrap(EntityDocumentProcessor processor) {
+        if (!isEnabled()) {
+            return processor;
+        }
+        return new ProfilingEntityDocumentProcessor(processor, profile(processor));
+    }
+
+    /**
+     * Logs call count, cumulative time and latencies of all profiled
+     * processors.
+     */
+    public static void logSummary() {
+        synchronized (PROFILES) {
+            for (Profile profile : PROFILES) {
+                final Map<String, Double> summary = profile.histogram.summary();
+                LOG.info("{}: {} calls, {} ms total, mean {} ms, p50 {} ms, p99 {} ms, max {} ms, {} slow calls.",
+                        profile.name, profile.calls.sum(), TimeUnit.NANOSECONDS.toMillis(profile.nanos.sum()),
+                        String.format("%.3f", summary.get("meanMillis")), summary.get("p50Millis"), summary.get("p99Millis"),
+                        summary.get("maxMillis"), profile.slow.sum());
+            }
+        }
+    }
+
+    private static Profile profile(Object processor) {
+        final String name = processor instanceof GndItemProcessor gndItemProcessor
+                ? gndItemProcessor.getName() : processor.getClass().getSimpleName();
+        final Profile profile = new Profile(name,
+                TimeUnit.MILLISECONDS.toNanos(Configuration.get().getIntValue("profileSlowItemMillis", 50)));
+        synchronized (PROFILES) {
+            PROFILES.add(profile);
+        }
+        return profile;
+    }
+
+    private static class Profile {
+
+        private final String name;
+        private final long slowNanos;
+        private final LongAdder calls;
+        private final LongAdder nanos;
+        private final LongAdder slow;
+        private final Metrics.Histogram histogram;
+
+        Profile(String name, long slowNanos) {
+            this.name = name;
+            this.slowNanos = slowNanos;
+            this.calls = Metrics.get().counter("profile." + name + ".calls");
+            this.nanos = Metrics.get().counter("profile." + name + ".nanos");
+            this.slow = Metrics.get().counter("profile." + name + ".slow");
+            this.histogram = Metrics.get().histogram("profile." + name);
+        }
+
+        void record(long duration, String qid) {
+            calls.increment();
+            nanos.add(duration);
+            histogram.record(duration);
+            if (duration >= slowNanos) {
+                slow.increment();
+                LOG.info("{} took {} ms for {}.", name, TimeUnit.NANOSECONDS.toMillis(duration), qid);
+            }
+        }
+    }
+
+    private static class ProfilingEntityDocumentProcessor implements EntityDocumentProcessor {
+
+        private final EntityDocumentProcessor processor;
+        private final Profile profile;
+
+        ProfilingEntityDocumentProcessor(EntityDocumentProcessor processor, Profile profile) {
+            this.processor = processor;
+            this.profile = profile;
+        }
+
+        @Override
+        public void processItemDocument(ItemDocument itemDocument) {
+            final long start = System.nanoTime();
+            try {
+                processor.processItemDocument(itemDocument);
+            } finally {
+                profile.record(System.nanoTime() - start, itemDocument.getEntityId().getId());
+            }
+        }
+
+        @Override
+        public void processPropertyDocument(PropertyDocument propertyDocument) {
+            final long start = System.nanoTime();
+            try {
+                processor.processPropertyDocument(propertyDocument);
+            } finally {
+                profile.record(System.nanoTime() - start, propertyDocument.getEntityId().getId());
+            }
+        }
+
+        @Override
+        public void processLexemeDocument(LexemeDocument lexemeDocument) {
+            final long start = System.nanoTime();
+            try {
+                processor.processLexemeDocument(lexemeDocument);
+            } finally {
+                profile.record(System.nanoTime() - start, lexemeDocument.getEntityId().getId());
+            }
+        }
+
+        @Override
+        public void processMediaInfoDocument(MediaInfoDocument mediaInfoDocument) {
+            final long start = System.nanoTime();
+            try {
+                processor.processMediaInfoDocument(mediaInfoDocument);
+            } finally {
+                profile.record(System.nanoTime() - start, mediaInfoDocument.getEntityId().getId());
+            }
+        }
+
+        @Override
+        public void processEntityRedirectDocument(EntityRedirectDocument entityRedirectDocument) {
+            final long start = System.nanoTime();
+            try {
+                processor.processEntityRedirectDocument(entityRedirectDocument);
+            } finally {
+                profile.record(System.nanoTime() - start, entityRedirectDocument.getEntityId().getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads another stream on a background thread into a queue of buffers. Used
+ * for streams which can't be decompressed in parallel (e.g. single-member
+ * gzip files), so decompression and parsing at least run on different cores.
+ *
+ * @author Michael Büchner
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private final static byte[] END = new byte[0];
+
+    private final InputStream in;
+    private final BlockingQueue<byte[]> buffers;
+    private final Thread reader;
+    private volatile IOException readError;
+    private byte[] current;
+    private int pos;
+    private boolean eof;
+
+    /**
+     * Constructor.
+     *
+     * @param in the stream to read ahead (closed with this stream)
+     * @param bufferSize size of a single buffer in bytes
+     * @param buffers maximum number of buffers read ahead
+     */
+    public ReadAheadInputStream(InputStream in, int bufferSize, int buffers) {
+        this.in = in;
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, buffers));
+        this.current = new byte[0];
+        this.pos = 0;
+        this.eof = false;
+        this.reader = new Thread(() -> readAhead(bufferSize), "read-ahead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= current.length && !nextBuffer()) {
+            return -1;
+        }
+        return current[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= current.length && !nextBuffer()) {
+            return -1;
+        }
+        final int n = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        // the reader may still be in the stream (e.g. an Inflater), which
+        // must not be closed concurrently
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Closing was interrupted.", ex);
+        }
+        in.close();
+    }
+
+    private boolean nextBuffer() throws IOException {
+        if (eof) {
+            return false;
+        }
+        try {
+            current = buffers.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading was interrupted.", ex);
+        }
+        pos = 0;
+        if (current == END) {
+            eof = true;
+            if (readError != null) {
+                throw readError;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void readAhead(int bufferSize) {
+        try {
+            while (true) {
+                final byte[] buf = new byte[bufferSize];
+                final int n = in.readNBytes(buf, 0, bufferSize);
+                if (n > 0) {
+                    buffers.put(n == bufferSize ? buf : Arrays.copyOf(buf, n));
+                }
+                if (n < bufferSize) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            readError = ex;
+        } catch (InterruptedException ex) {
+            // stream was closed
+            return;
+        }
+        try {
+            buffers.put(END);
+        } catch (InterruptedException ex) {
+            // stream was closed
+        }
+    }
+}
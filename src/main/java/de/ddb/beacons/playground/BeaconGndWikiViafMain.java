@@ -19,6 +19,8 @@
  */
 package de.ddb.beacons.playground;
 
+import de.ddb.beacons.helpers.Compression;
+import de.ddb.beacons.helpers.ExternalSorter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -29,6 +31,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -43,6 +46,8 @@ public class BeaconGndWikiViafMain {
     // BEACON file name
     private static final String BEACON_FILENAME = "beacon_gndwikiviaf.txt";
     private static final String VIAF_FILENAME = "viaf-20150512-links.txt";
+    // memory for sorting the VIAF links
+    private static final long SORT_MEMORY = 256L << 20;
     private static final String[] BEACON_HEADER = {
         "#FORMAT: BEACON",
         "#PREFIX: http://d-nb.info/gnd/",
@@ -80,6 +85,7 @@ public class BeaconGndWikiViafMain {
         // sort input file
         File newInput = new File(VIAF_FILENAME + ".sorted");
         newInput.deleteOnExit();
+        new ExternalSorter('\t', SORT_MEMORY, Paths.get(".")).sort(Paths.get(VIAF_FILENAME), newInput.toPath(), Compression.NONE, null);
 
         try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(BEACON_FILENAME), StandardCharsets.UTF_8))) {
 
@@ -19,7 +19,9 @@
  */
 package de.ddb.beacons.playground;
 
+import de.ddb.beacons.helpers.DumpPrefilter;
 import de.ddb.beacons.helpers.EntityTimerProcessor;
+import de.ddb.beacons.helpers.ParallelDumpProcessor;
 import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -214,7 +216,16 @@ public class CsvGndWikipediaMain implements EntityDocumentProcessor {
                     dumpProcessingController.processAllRecentRevisionDumps();
                     break;
                 case JSON:
-                    dumpProcessingController.processMostRecentJsonDump();
+                    final int workers = ParallelDumpProcessor.getConfiguredWorkers();
+                    if (workers > 0) {
+                        final ParallelDumpProcessor parallelDumpProcessor = new ParallelDumpProcessor(workers, ParallelDumpProcessor.getConfiguredChunkSize());
+                        parallelDumpProcessor.registerEntityDocumentProcessor(entityDocumentProcessor);
+                        parallelDumpProcessor.registerEntityDocumentProcessor(entityTimerProcessor);
+                        parallelDumpProcessor.setPrefilter(DumpPrefilter.fromConfiguration(GND_PROPERTY));
+                        parallelDumpProcessor.processMostRecentJsonDump(dumpProcessingController, System.getProperty("user.dir"));
+                    } else {
+                        dumpProcessingController.processMostRecentJsonDump();
+                    }
                     break;
                 case JUST_ONE_DAILY_FOR_TEST:
                     dumpProcessingController.processMostRecentMainDump();
@@ -19,13 +19,22 @@
  */
 package de.ddb.beacons.playground;
 
+import de.ddb.beacons.helpers.Compression;
 import de.ddb.beacons.helpers.EntityFacts;
+import de.ddb.beacons.helpers.DumpPrefilter;
 import de.ddb.beacons.helpers.EntityTimerProcessor;
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
+import de.ddb.beacons.helpers.ParallelDumpProcessor;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,28 +43,32 @@ import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 import org.wikidata.wdtk.datamodel.interfaces.Statement;
 import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
 import org.wikidata.wdtk.datamodel.interfaces.Value;
 import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
 import org.wikidata.wdtk.dumpfiles.DumpContentType;
 import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
 
 /**
+ * Runs several {@link ItemAnalysis analyses} in one pass over the dump, e.g.
+ * all property pairs given on the command line:
+ * <code>FindDuplicatesMain P18=P1442 P18=P94 P18!=P1801</code> (default:
+ * P18=P1442). Each analysis writes {DUMPDATE}-&lt;name&gt;.txt.
  *
  * @author Michael Büchner
  */
 public class FindDuplicatesMain implements EntityDocumentProcessor {
 
-    // first propertiy
-    private final String PROP01 = "P18";
-    // second property
-    // private final String PROP02 = "P94";
-    // private final String PROP02 = "P1801";
-    private final String PROP02 = "P1442";
+    // default analysis: same image (P18) and grave image (P1442)
+    private final static String DEFAULT_ANALYSIS = "P18=P1442";
 
-    private final String outputFilename = "{DUMPDATE}-" + PROP01 + "-to-" + PROP02 + ".txt";
+    private final String outputFilename = "{DUMPDATE}-{NAME}.txt";
 
     private final Logger LOG = LoggerFactory.getLogger(FindDuplicatesMain.class);
-    private BufferedWriter outputFile;
+    private final List<ItemAnalysis> analyses;
+    private final Set<String> properties;
+    private final Map<String, String> values;
+    private final List<OutputFile> outputFiles;
 
     private static enum DumpProcessingMode {
         JSON, CURRENT_REVS, ALL_REVS, CURRENT_REVS_WITH_DAILIES, ALL_REVS_WITH_DAILIES, JUST_ONE_DAILY_FOR_TEST
@@ -63,8 +76,27 @@ public class FindDuplicatesMain implements EntityDocumentProcessor {
     private final static DumpProcessingMode DUMP_FILE_MODE = DumpProcessingMode.JSON;
     private final static int TIMEOUT_SEC = 0;
 
+    public FindDuplicatesMain(List<ItemAnalysis> analyses) {
+        this.analyses = analyses;
+        this.properties = new HashSet<>();
+        for (ItemAnalysis analysis : analyses) {
+            properties.addAll(analysis.getProperties());
+        }
+        this.values = new HashMap<>();
+        this.outputFiles = new ArrayList<>();
+    }
+
     public static void main(String[] args) throws IOException {
-        new FindDuplicatesMain().run();
+        final List<ItemAnalysis> analyses = new ArrayList<>();
+        try {
+            for (String arg : args.length == 0 ? new String[]{DEFAULT_ANALYSIS} : args) {
+                analyses.add(PropertyPairAnalysis.parse(arg));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        new FindDuplicatesMain(analyses).run();
     }
 
     private void run() throws IOException {
@@ -75,39 +107,50 @@ public class FindDuplicatesMain implements EntityDocumentProcessor {
 
         final String timestamp = dumpProcessingController.getWmfDumpFileManager().findMostRecentDump(DumpContentType.JSON).getDateStamp();
 
-        outputFile = new BufferedWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilename.replace("{DUMPDATE}", timestamp)), StandardCharsets.UTF_8)));
+        for (ItemAnalysis analysis : analyses) {
+            final String fname = outputFilename.replace("{DUMPDATE}", timestamp).replace("{NAME}", analysis.getName());
+            outputFiles.add(OutputWriter.get().open(Paths.get(fname), Compression.NONE));
+        }
 
         EntityFacts.get().load();
         processEntitiesFromWikidataDump(dumpProcessingController, this);
         EntityFacts.get().save();
 
-        outputFile.close();
+        for (OutputFile outputFile : outputFiles) {
+            outputFile.close();
+        }
     }
 
     @Override
     public void processItemDocument(ItemDocument itemDocument) {
 
-        String prop01 = null;
-        String prop02 = null;
-
+        values.clear();
         for (StatementGroup statementGroup : itemDocument.getStatementGroups()) {
             final String propId = statementGroup.getProperty().getId();
-            if (propId.equalsIgnoreCase(PROP01)) {
-                prop01 = getStringValue(statementGroup);
-            } else if (propId.equalsIgnoreCase(PROP02)) {
-                prop02 = getStringValue(statementGroup);
+            if (properties.contains(propId)) {
+                final String value = getStringValue(statementGroup);
+                if (value != null) {
+                    values.put(propId, value);
+                }
             }
         }
+        if (values.isEmpty()) {
+            return;
+        }
 
-        if (prop01 != null && prop02 != null) {
-            if (prop01.equalsIgnoreCase(prop02)) {
+        final String qid = itemDocument.getEntityId().getId();
+        for (int i = 0; i < analyses.size(); ++i) {
+            final ItemAnalysis analysis = analyses.get(i);
+            if (!values.containsKey(analysis.getProperties().get(0))) {
+                continue;
+            }
+            final String line = analysis.analyze(qid, values);
+            if (line != null) {
                 try {
-                    outputFile.write(itemDocument.getEntityId().getId() + "\t" + prop01);
-                    outputFile.newLine();
+                    outputFiles.get(i).writeLine(line);
                 } catch (IOException ex) {
                     LOG.error("Could not write to file", ex);
                 }
-
             }
         }
 
@@ -121,12 +164,27 @@ public class FindDuplicatesMain implements EntityDocumentProcessor {
         for (Statement s : statementGroup.getStatements()) {
             if (s.getClaim().getMainSnak() instanceof ValueSnak) {
                 Value v = ((ValueSnak) s.getClaim().getMainSnak()).getValue();
+                if (v instanceof StringValue stringValue) {
+                    return stringValue.getString();
+                }
                 return StringEscapeUtils.unescapeJson(v.toString());
             }
         }
         return null;
     }
 
+    /**
+     * @return the first property of every analysis, one of them is in every
+     * item which needs to be analyzed
+     */
+    private String[] getFirstProperties() {
+        final Set<String> first = new LinkedHashSet<>();
+        for (ItemAnalysis analysis : analyses) {
+            first.add(analysis.getProperties().get(0));
+        }
+        return first.toArray(String[]::new);
+    }
+
     public void processEntitiesFromWikidataDump(DumpProcessingController dumpProcessingController, EntityDocumentProcessor entityDocumentProcessor) throws IOException {
 
         // Should we process historic revisions or only current ones?
@@ -163,7 +221,16 @@ public class FindDuplicatesMain implements EntityDocumentProcessor {
                     dumpProcessingController.processAllRecentRevisionDumps();
                     break;
                 case JSON:
-                    dumpProcessingController.processMostRecentJsonDump();
+                    final int workers = ParallelDumpProcessor.getConfiguredWorkers();
+                    if (workers > 0) {
+                        final ParallelDumpProcessor parallelDumpProcessor = new ParallelDumpProcessor(workers, ParallelDumpProcessor.getConfiguredChunkSize());
+                        parallelDumpProcessor.registerEntityDocumentProcessor(entityDocumentProcessor);
+                        parallelDumpProcessor.registerEntityDocumentProcessor(entityTimerProcessor);
+                        parallelDumpProcessor.setPrefilter(DumpPrefilter.fromConfiguration(getFirstProperties()));
+                        parallelDumpProcessor.processMostRecentJsonDump(dumpProcessingController, System.getProperty("user.dir"));
+                    } else {
+                        dumpProcessingController.processMostRecentJsonDump();
+                    }
                     break;
                 case JUST_ONE_DAILY_FOR_TEST:
                     dumpProcessingController.processMostRecentMainDump();
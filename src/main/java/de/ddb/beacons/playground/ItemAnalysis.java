@@ -0,0 +1,54 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.playground;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An analysis run by {@link FindDuplicatesMain} on the property values of
+ * every item. All analyses share one pass over the dump, each one writes to
+ * its own file.
+ *
+ * @author Michael Büchner
+ */
+public interface ItemAnalysis {
+
+    /**
+     * @return name of the analysis, used in the output file name
+     */
+    String getName();
+
+    /**
+     * Returns the properties the analysis reads. Only items with the first
+     * one are handed to {@link #analyze(String, Map)}.
+     *
+     * @return property IDs (e.g. P18)
+     */
+    List<String> getProperties();
+
+    /**
+     * @param qid the Wikidata ID
+     * @param values the first value of each property of the item (also of
+     * properties of other analyses)
+     * @return the line to write or <code>null</code>
+     */
+    String analyze(String qid, Map<String, String> values);
+}
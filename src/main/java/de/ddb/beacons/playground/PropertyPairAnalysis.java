@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.playground;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the values of two properties of an item. Written as
+ * <code>P18=P1442</code> (same value, ignoring case), <code>P18!=P1442</code>
+ * (different values) or <code>P18&amp;P1442</code> (both present).
+ *
+ * @author Michael Büchner
+ */
+public class PropertyPairAnalysis implements ItemAnalysis {
+
+    private final static Pattern SPEC = Pattern.compile("(P[1-9][0-9]*)(=|!=|&)(P[1-9][0-9]*)");
+
+    private final String name;
+    private final String prop01;
+    private final String prop02;
+    private final BiPredicate<String, String> predicate;
+    private final boolean bothValues;
+
+    private PropertyPairAnalysis(String name, String prop01, String prop02, BiPredicate<String, String> predicate, boolean bothValues) {
+        this.name = name;
+        this.prop01 = prop01;
+        this.prop02 = prop02;
+        this.predicate = predicate;
+        this.bothValues = bothValues;
+    }
+
+    /**
+     * @param spec e.g. P18=P1442
+     * @return the analysis
+     * @throws IllegalArgumentException if the spec can't be parsed
+     */
+    public static PropertyPairAnalysis parse(String spec) {
+        final Matcher m = SPEC.matcher(spec.trim().toUpperCase());
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Unknown property pair " + spec + " (e.g. P18=P1442, P18!=P1442 or P18&P1442)");
+        }
+        final String prop01 = m.group(1);
+        final String prop02 = m.group(3);
+        return switch (m.group(2)) {
+            case "=" ->
+                new PropertyPairAnalysis(prop01 + "-to-" + prop02, prop01, prop02, String::equalsIgnoreCase, false);
+            case "!=" ->
+                new PropertyPairAnalysis(prop01 + "-not-" + prop02, prop01, prop02, (a, b) -> !a.equalsIgnoreCase(b), true);
+            default ->
+                new PropertyPairAnalysis(prop01 + "-and-" + prop02, prop01, prop02, (a, b) -> true, true);
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<String> getProperties() {
+        return List.of(prop01, prop02);
+    }
+
+    @Override
+    public String analyze(String qid, Map<String, String> values) {
+        final String value01 = values.get(prop01);
+        final String value02 = values.get(prop02);
+        if (value01 == null || value02 == null || !predicate.test(value01, value02)) {
+            return null;
+        }
+        return bothValues ? qid + "\t" + value01 + "\t" + value02 : qid + "\t" + value01;
+    }
+}
@@ -21,34 +21,27 @@ package de.ddb.beacons.runners;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
+import de.ddb.beacons.helpers.Compression;
 import de.ddb.beacons.helpers.Configuration;
 import de.ddb.beacons.helpers.EntityFacts;
 import de.ddb.beacons.helpers.EntityFacts.EntityType;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import org.apache.commons.text.StringEscapeUtils;
-import org.h2.mvstore.MVMap;
-import org.h2.mvstore.MVStore;
-import org.h2.mvstore.type.StringDataType;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
-import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
-import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.wikidata.wdtk.datamodel.interfaces.Sites;
-import org.wikidata.wdtk.datamodel.interfaces.Statement;
-import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
-import org.wikidata.wdtk.datamodel.interfaces.Value;
-import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
 
 /**
  *
  * @author Michael Büchner
  */
-public class BeaconGndImage implements EntityDocumentProcessor {
+public class BeaconGndImage implements Runner {
 
     // BEACON file name
     private final static String BEACON_FILENAME = "{DUMPDATE}-beacon_gndimages.txt";
@@ -64,99 +57,68 @@ public class BeaconGndImage implements EntityDocumentProcessor {
         "#TIMESTAMP: {DUMPDATE}",
         "#FEED: " + "file:///{BEACONFILENAME}"
     };
-    // Crest (Wappen) property
-    private final static String CREST_PROP = "P94";
-    // GND value property
-    private final static String GND_PROP = "P227";
-    // Image property
-    private final static String IMAGE_PROP = "P18";
-    // Logo property
-    private final static String LOGO_PROP = "P154";
     private final static String IMAGE_PREFIX = "Special:FilePath/";
 
     private final static Logger LOGGER = LoggerFactory.getLogger(BeaconGndImage.class);
 
-    private final BufferedWriter bw_beacon;
-    private final BufferedWriter bw_csv;
-    private final Sites sites;
+    // maximum number of lines waiting for their entity type
+    private final static int MAX_PENDING = 10000;
 
-    @Autowired
-    private MVStore store;
-    private final MVMap<String, String> map;
+    private final OutputFile bw_beacon;
+    private final OutputFile bw_csv;
+    private final Sites sites;
+    private final Deque<PendingLine> pending;
 
     public BeaconGndImage(Sites sites, String timestamp) throws IOException {
-        map = store.openMap(getClass().getName(), new MVMap.Builder<String, String>().keyType(StringDataType.INSTANCE).valueType(StringDataType.INSTANCE));
 
         this.sites = sites;
+        this.pending = new ArrayDeque<>();
         final String localBeaconFilename = BEACON_FILENAME.replace("{DUMPDATE}", timestamp.replaceAll("-", ""));
         final String localCsvFilename = CSV_FILENAME.replace("{DUMPDATE}", timestamp.replaceAll("-", ""));
 
-        this.bw_beacon = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(Configuration.get().getValue("destDir") + File.separator + localBeaconFilename), StandardCharsets.UTF_8));
-        this.bw_csv = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(Configuration.get().getValue("destDir") + File.separator + localCsvFilename), StandardCharsets.UTF_8));
+        final Compression compression = Compression.fromConfiguration("beaconGndImageCompression");
+        this.bw_beacon = OutputWriter.get().open(Paths.get(Configuration.get().getValue("destDir"), localBeaconFilename), compression);
+        this.bw_csv = OutputWriter.get().open(Paths.get(Configuration.get().getValue("destDir"), localCsvFilename), compression);
 
         for (String s : BEACON_HEADER) {
             s = s.replaceAll("\\{DUMPDATE\\}", timestamp);
-            s = s.replaceAll("\\{BEACONFILENAME\\}", localBeaconFilename);
-            bw_beacon.write(s);
-            bw_beacon.newLine();
+            s = s.replaceAll("\\{BEACONFILENAME\\}", bw_beacon.getPath().getFileName().toString());
+            bw_beacon.writeLine(s);
         }
     }
 
     @Override
-    public void processItemDocument(ItemDocument itemDocument) {
-
-        String gnd = null;
-        String image = null;
-        String logo = null;
-        String crest = null;
-
-        for (StatementGroup statementGroup : itemDocument.getStatementGroups()) {
-            final String propId = statementGroup.getProperty().getId();
-            if (propId.equalsIgnoreCase(GND_PROP)) {
-                gnd = getStringValue(statementGroup);
-                if (gnd == null || gnd.length() < 3) {
-                    gnd = null;
-                    continue;
-                }
-                gnd = gnd.substring(1, gnd.length() - 1);
-            } else if (propId.equalsIgnoreCase(IMAGE_PROP)) {
-                image = getStringValue(statementGroup);
-                if (image == null || image.length() < 3) {
-                    image = null;
-                    continue;
-                }
-
-                image = image.substring(1, image.length() - 1);
-                image = image.replace(" ", "_");
-                image = sites.getPageUrl("commonswiki", IMAGE_PREFIX + image);
-            } else if (propId.equalsIgnoreCase(LOGO_PROP)) {
-                logo = getStringValue(statementGroup);
-                if (logo == null || logo.length() < 3) {
-                    logo = null;
-                    continue;
-                }
-
-                logo = logo.substring(1, logo.length() - 1);
-                logo = logo.replace(" ", "_");
-                logo = sites.getPageUrl("commonswiki", IMAGE_PREFIX + logo);
-            } else if (propId.equalsIgnoreCase(CREST_PROP)) {
-                crest = getStringValue(statementGroup);
-                if (crest == null || crest.length() < 3) {
-                    crest = null;
-                    continue;
-                }
-
-                crest = crest.substring(1, crest.length() - 1);
-                crest = crest.replace(" ", "_");
-                crest = sites.getPageUrl("commonswiki", IMAGE_PREFIX + crest);
+    public void processGndItem(GndItem item) {
+
+        // the lines are written when the entity type is known, but in order;
+        // not the type saved in the state store, the entity type database
+        // knows about expired and revalidated types
+        final CompletableFuture<EntityType> entityType = EntityFacts.get().getEntityTypeAsync(item.getGnd());
+        pending.add(new PendingLine(item.getGnd(),
+                getFileUrl(item.getImage()),
+                getFileUrl(item.getLogo()),
+                getFileUrl(item.getCrest()),
+                entityType));
+        writePending(false);
+    }
+
+    /**
+     * Writes all pending lines whose entity type is resolved, up to the first
+     * unresolved one. If there are too many pending lines or all lines are
+     * requested, it waits for the entity types.
+     */
+    private void writePending(boolean all) {
+        while (!pending.isEmpty()) {
+            final PendingLine line = pending.peek();
+            if (!all && !line.entityType.isDone() && pending.size() < MAX_PENDING) {
+                return;
             }
+            pending.poll();
+            write(line.gnd, line.image, line.logo, line.crest, line.entityType.join());
         }
-        if ((gnd == null || gnd.isEmpty())) {
-            return;
-        }
-
-        final EntityType entityType = EntityFacts.get().getEntityType(gnd);
+    }
 
+    private void write(String gnd, String image, String logo, String crest, EntityType entityType) {
         try {
             // CSV
             final StringBuilder sb_csv = new StringBuilder();
@@ -169,9 +131,7 @@ public class BeaconGndImage implements EntityDocumentProcessor {
                     .append(logo)
                     .append(";")
                     .append(crest);
-            bw_csv.write(sb_csv.toString());
-            bw_csv.newLine();
-            bw_csv.flush();
+            bw_csv.writeLine(sb_csv.toString());
 
             // Beacon
             final StringBuilder sb_beacon = new StringBuilder();
@@ -203,40 +163,59 @@ public class BeaconGndImage implements EntityDocumentProcessor {
                 return;
             }
 
-            bw_beacon.write(sb_beacon.toString());
-            bw_beacon.newLine();
-            bw_beacon.flush();
+            bw_beacon.writeLine(sb_beacon.toString());
         } catch (IOException ex) {
             LOGGER.warn("Problem at GND Id {}", gnd, ex);
         }
     }
 
-    @Override
-    public void processPropertyDocument(PropertyDocument propertyDocument) {
+    private String getFileUrl(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        return sites.getPageUrl("commonswiki", IMAGE_PREFIX + fileName.replace(" ", "_"));
     }
 
-    private String getStringValue(StatementGroup statementGroup) {
-        for (Statement s : statementGroup.getStatements()) {
-            if (s.getClaim().getMainSnak() instanceof ValueSnak) {
-                Value v = ((ValueSnak) s.getClaim().getMainSnak()).getValue();
-                return StringEscapeUtils.unescapeJson(v.toString());
-            }
-        }
-        return null;
+    /**
+     * @return the files written by this runner
+     */
+    @Override
+    public List<Path> getOutputFiles() {
+        return List.of(bw_beacon.getPath(), bw_csv.getPath());
     }
 
-    public void close() throws IOException {
+    @Override
+    public void close() {
+
+        writePending(true);
 
         try {
             bw_beacon.close();
         } catch (IOException e) {
-            //nothing
+            LOGGER.error("Could not write {}. {}", bw_beacon.getPath(), e.getMessage());
         }
 
         try {
             bw_csv.close();
         } catch (IOException e) {
-            //nothing
+            LOGGER.error("Could not write {}. {}", bw_csv.getPath(), e.getMessage());
+        }
+    }
+
+    private static class PendingLine {
+
+        private final String gnd;
+        private final String image;
+        private final String logo;
+        private final String crest;
+        private final CompletableFuture<EntityType> entityType;
+
+        PendingLine(String gnd, String image, String logo, String crest, CompletableFuture<EntityType> entityType) {
+            this.gnd = gnd;
+            this.image = image;
+            this.logo = logo;
+            this.crest = crest;
+            this.entityType = entityType;
         }
     }
 }
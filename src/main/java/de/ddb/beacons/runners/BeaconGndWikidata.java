@@ -19,29 +19,23 @@
  */
 package de.ddb.beacons.runners;
 
+import de.ddb.beacons.helpers.Compression;
 import de.ddb.beacons.helpers.Configuration;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import org.apache.commons.text.StringEscapeUtils;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
-import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
-import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
-import org.wikidata.wdtk.datamodel.interfaces.Statement;
-import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
-import org.wikidata.wdtk.datamodel.interfaces.Value;
-import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
 
 /**
  *
  * @author Michael Büchner
  */
-public class BeaconGndWikidata implements EntityDocumentProcessor {
+public class BeaconGndWikidata implements Runner {
 
     // BEACON file name
     private final static String BEACON_FILENAME = "{DUMPDATE}-beacon_wikidata.txt";
@@ -59,71 +53,46 @@ public class BeaconGndWikidata implements EntityDocumentProcessor {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(BeaconGndWikidata.class);
 
-    // GND value property
-    private final static String GND_PROP = "P227";
-    private final BufferedWriter bw;
+    private final OutputFile bw;
 
     public BeaconGndWikidata(String timestamp) throws IOException {
 
         final String fname = BEACON_FILENAME.replace("{DUMPDATE}", timestamp.replaceAll("-", ""));
 
-        this.bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(Configuration.get().getValue("destDir") + File.separator + fname), StandardCharsets.UTF_8));
+        this.bw = OutputWriter.get().open(Paths.get(Configuration.get().getValue("destDir"), fname),
+                Compression.fromConfiguration("beaconGndWikidataCompression"));
 
         for (String s : BEACON_HEADER) {
             s = s.replaceAll("\\{DUMPDATE\\}", timestamp);
-            s = s.replaceAll("\\{BEACONFILENAME\\}", fname);
-            bw.write(s);
-            bw.newLine();
+            s = s.replaceAll("\\{BEACONFILENAME\\}", bw.getPath().getFileName().toString());
+            bw.writeLine(s);
         }
     }
 
     @Override
-    public void processItemDocument(ItemDocument itemDocument) {
-
-        String gnd = null;
-
-        for (StatementGroup statementGroup : itemDocument.getStatementGroups()) {
-            final String propId = statementGroup.getProperty().getId();
-            if (propId.equalsIgnoreCase(GND_PROP)) {
-                gnd = getStringValue(statementGroup);
-                if (gnd == null || gnd.length() < 3) {
-                    gnd = null;
-                    continue;
-                }
-                gnd = gnd.substring(1, gnd.length() - 1);
-                break;
-            }
-        }
-        if (gnd != null && gnd.length() > 0) {
-            try {
-                final String s = gnd + "||http://www.wikidata.org/entity/" + itemDocument.getEntityId().getId();
-                bw.write(s);
-                bw.newLine();
-            } catch (IOException ex) {
-                LOGGER.warn("Could not write to file " + BEACON_FILENAME, ex);
-            }
+    public void processGndItem(GndItem item) {
+        try {
+            final String s = item.getGnd() + "||http://www.wikidata.org/entity/" + item.getQid();
+            bw.writeLine(s);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not write to file " + BEACON_FILENAME, ex);
         }
     }
 
+    /**
+     * @return the files written by this runner
+     */
     @Override
-    public void processPropertyDocument(PropertyDocument propertyDocument) {
-    }
-
-    private String getStringValue(StatementGroup statementGroup) {
-        for (Statement s : statementGroup.getStatements()) {
-            if (s.getClaim().getMainSnak() instanceof ValueSnak) {
-                Value v = ((ValueSnak) s.getClaim().getMainSnak()).getValue();
-                return StringEscapeUtils.unescapeJson(v.toString());
-            }
-        }
-        return null;
+    public List<Path> getOutputFiles() {
+        return List.of(bw.getPath());
     }
 
+    @Override
     public void close() {
         try {
             bw.close();
         } catch (IOException e) {
-            //nothing
+            LOGGER.error("Could not write {}. {}", bw.getPath(), e.getMessage());
         }
     }
 }
@@ -19,33 +19,27 @@
  */
 package de.ddb.beacons.runners;
 
+import de.ddb.beacons.helpers.Compression;
 import de.ddb.beacons.helpers.Configuration;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
-import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
-import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
-import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
 import org.wikidata.wdtk.datamodel.interfaces.Sites;
-import org.wikidata.wdtk.datamodel.interfaces.Statement;
-import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
-import org.wikidata.wdtk.datamodel.interfaces.Value;
-import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
 
 /**
  *
  * @author Michael Büchner
  */
-public class BeaconGndWikipedia implements EntityDocumentProcessor {
+public class BeaconGndWikipedia implements Runner {
 
     // BEACON file name
     private final static String[] BEACON_LANGS = {"dewiki", "enwiki", "dewikisource", "enwikisource"};
@@ -69,35 +63,30 @@ public class BeaconGndWikipedia implements EntityDocumentProcessor {
         "#FEED: " + "file:///{BEACONFILENAME}"
     };
 
-    // GND value property
-    private final static String GND_PROP = "P227";
-
     private final Logger LOG = LoggerFactory.getLogger(BeaconGndWikipedia.class);
 
-    private final Map<String, BufferedWriter> bws;
-    private final Map<String, OutputStreamWriter> fws;
+    private final Map<String, OutputFile> bws;
     private final Sites sites;
 
     public BeaconGndWikipedia(Sites sites, String timestamp) throws IOException {
 
-        this.fws = new HashMap<>();
         this.bws = new HashMap<>();
 
         // Download the sites table dump and extract information
         this.sites = sites;
 
         // init files
+        final Compression compression = Compression.fromConfiguration("beaconGndWikipediaCompression");
         for (String lang : BEACON_LANGS) {
 
             // get file name
             String fname = BEACON_FILENAME.replace("{DUMPDATE}", timestamp.replaceAll("-", ""));
             fname = fname.replace("{LANG}", lang);
-            final String fnameForHeader = fname;
 
-            final OutputStreamWriter fw = new OutputStreamWriter(new FileOutputStream(Configuration.get().getValue("destDir") + File.separator + fname), StandardCharsets.UTF_8);
-            fws.put(lang, fw);
-            final BufferedWriter bw = new BufferedWriter(fw);
+            final OutputFile bw = OutputWriter.get().open(Paths.get(Configuration.get().getValue("destDir"), fname), compression);
             bws.put(lang, bw);
+            // with the suffix of the compression
+            final String fnameForHeader = bw.getPath().getFileName().toString();
 
             // write header
             for (String s : BEACON_HEADER) {
@@ -108,77 +97,53 @@ public class BeaconGndWikipedia implements EntityDocumentProcessor {
                     s = s.replaceAll("\\{DUMPDATE\\}", timestamp).replace("{LANG}", lang);
                 }
                 s = s.replaceAll("\\{BEACONFILENAME\\}", fnameForHeader);
-                bw.write(s);
-                bw.newLine();
+                bw.writeLine(s);
             }
         }
     }
 
     @Override
-    public void processItemDocument(ItemDocument itemDocument) {
-        String gnd = null;
-        for (StatementGroup statementGroup : itemDocument.getStatementGroups()) {
-            if (statementGroup.getProperty().getId().equals(GND_PROP)) {
-                gnd = getStringValue(statementGroup);
-                if (gnd == null || gnd.length() < 3) {
-                    gnd = null;
-                } else {
-                    gnd = gnd.substring(1, gnd.length() - 1);
-                }
-                break; // the for-loop
-            }
-        }
-
-        if (gnd == null || gnd.length() <= 0) {
-            return; // we dont have an GND id
-        }
-
+    public void processGndItem(GndItem item) {
         for (String lang : BEACON_LANGS) {
-            String link;
-            try {
-                link = ((SiteLink) itemDocument.getSiteLinks().get(lang)).getPageTitle();
-                link = sites.getPageUrl(lang, link);
-                link = link.replaceFirst("http:", "");
-                if (link.length() > 0) {
-                    final BufferedWriter bw = bws.get(lang);
-                    bw.write(gnd + "||" + link);
-                    bw.newLine();
+            final String title = item.getSiteLinkTitle(lang);
+            if (title == null) {
+                continue; // there's no site link
+            }
+            String link = sites.getPageUrl(lang, title);
+            if (link == null) {
+                continue; // there's no site url
+            }
+            link = link.replaceFirst("http:", "");
+            if (link.length() > 0) {
+                try {
+                    bws.get(lang).writeLine(item.getGnd() + "||" + link);
+                } catch (IOException ex) {
+                    LOG.warn("Could not write to file {}. {}", BEACON_FILENAME, ex.getLocalizedMessage());
                 }
-            } catch (NullPointerException ex) {
-                // do nothing (there's no site url)
-            } catch (IOException ex) {
-                LOG.warn("Could not write to file {}. {}", BEACON_FILENAME, ex.getLocalizedMessage());
             }
         }
     }
 
+    /**
+     * @return the files written by this runner
+     */
     @Override
-    public void processPropertyDocument(PropertyDocument propertyDocument) {
-        // Nothing to do
-    }
-
-    private String getStringValue(StatementGroup statementGroup) {
-        for (Statement s : statementGroup.getStatements()) {
-            if (s.getClaim().getMainSnak() instanceof ValueSnak) {
-                Value v = ((ValueSnak) s.getClaim().getMainSnak()).getValue();
-                return StringEscapeUtils.unescapeJson(v.toString());
-            }
+    public List<Path> getOutputFiles() {
+        final List<Path> files = new ArrayList<>();
+        for (String lang : BEACON_LANGS) {
+            files.add(bws.get(lang).getPath());
         }
-        return null;
+        return files;
     }
 
+    @Override
     public void close() {
         // close files
         for (String lang : BEACON_LANGS) {
             try {
                 bws.get(lang).close();
             } catch (IOException e) {
-                //nothing
-            }
-            try {
-                fws.get(lang).close();
-            } catch (IOException e) {
-                //nothing
+                LOG.error("Could not write {}. {}", bws.get(lang).getPath(), e.getMessage());
             }
         }
     }
@@ -0,0 +1,238 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.runners;
+
+import de.ddb.beacons.helpers.Compression;
+import de.ddb.beacons.helpers.Configuration;
+import de.ddb.beacons.helpers.GndItem;
+import de.ddb.beacons.helpers.OutputFile;
+import de.ddb.beacons.helpers.OutputWriter;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * A BEACON file declared in config.xml instead of code. Every line links a
+ * GND ID to a target built from a template and a value of the item, which is
+ * either the first string value of a property (e.g. P214) or the page title of
+ * a site link (e.g. dewiki):
+ * <ul>
+ * <li>beacon.&lt;id&gt;.source: property ID or site key</li>
+ * <li>beacon.&lt;id&gt;.target: target template with the placeholders
+ * {value}, {value:url} (URL encoded), {value:nospace} (without spaces),
+ * {qid} and {url} (page URL of a site link)</li>
+ * <li>beacon.&lt;id&gt;.filter: regular expression the value must match
+ * (optional)</li>
+ * <li>beacon.&lt;id&gt;.isil: registered ISIL of the collection (optional,
+ * without it the #ISIL and #COLLID header lines are left out)</li>
+ * <li>beacon.&lt;id&gt;.description: header field ({DUMPDATE} is
+ * replaced)</li>
+ * <li>beacon.&lt;id&gt;.filename: file name (default
+ * {DUMPDATE}-beacon_&lt;id&gt;.txt)</li>
+ * <li>beacon.&lt;id&gt;.compression: none, gz or zstd</li>
+ * </ul>
+ * The template is parsed once, so a line costs a map lookup and a few
+ * appends.
+ *
+ * @author Michael Büchner
+ */
+public class DeclaredBeacon implements Runner {
+
+    private final static Logger LOG = LoggerFactory.getLogger(DeclaredBeacon.class);
+    private final static Pattern PROPERTY = Pattern.compile("P[1-9][0-9]*");
+    private final static Pattern PLACEHOLDER = Pattern.compile("\\{(value|value:url|value:nospace|qid|url)\\}");
+    private final static String[] BEACON_HEADER = {
+        "#FORMAT: BEACON",
+        "#PREFIX: http://d-nb.info/gnd/",
+        "#CONTACT: Michael Büchner <m.buechner@dnb.de>",
+        "#INSTITUTION: Deutsche Digitale Bibliothek <https://www.deutsche-digitale-bibliothek.de/>",
+        "#ISIL: {ISIL}",
+        "#COLLID: {ISIL}",
+        "#DESCRIPTION: {DESCRIPTION}",
+        "#TIMESTAMP: {DUMPDATE}",
+        "#FEED: " + "file:///{BEACONFILENAME}"
+    };
+
+    private final String id;
+    private final String source;
+    private final boolean siteLink;
+    private final Pattern filter;
+    private final List<String> parts;
+    private final Sites sites;
+    private final OutputFile bw;
+    private final StringBuilder line;
+
+    /**
+     * Constructor.
+     *
+     * @param id the ID of the declaration
+     * @param sites the sites table (for {url})
+     * @param timestamp the date of the dump (yyyy-MM-dd)
+     * @throws IOException if the file can't be opened
+     * @throws IllegalArgumentException if the declaration is incomplete
+     */
+    public DeclaredBeacon(String id, Sites sites, String timestamp) throws IOException {
+        this.id = id;
+        this.source = getSource(id);
+        this.siteLink = !isProperty(source);
+        final String target = Configuration.get().getValue("beacon." + id + ".target");
+        if (target == null || target.isBlank()) {
+            throw new IllegalArgumentException("beacon." + id + ".target is missing");
+        }
+        final String filterValue = Configuration.get().getValue("beacon." + id + ".filter");
+        this.filter = filterValue == null || filterValue.isBlank() ? null : Pattern.compile(filterValue.trim());
+        this.parts = parseTemplate(target.trim());
+        this.sites = sites;
+        this.line = new StringBuilder(128);
+
+        final String dumpDate = timestamp.replaceAll("-", "");
+        final String filename = getValue("filename", "{DUMPDATE}-beacon_" + id + ".txt").replace("{DUMPDATE}", dumpDate);
+        final String isil = getValue("isil", null);
+        final String description = getValue("description", "This is a concordance for GND URIs to " + source + ". Made from Wikidata dump {DUMPDATE}.");
+        this.bw = OutputWriter.get().open(Paths.get(Configuration.get().getValue("destDir"), filename),
+                Compression.fromConfiguration("beacon." + id + ".compression"));
+
+        for (String s : BEACON_HEADER) {
+            if (s.contains("{ISIL}")) {
+                if (isil == null) {
+                    continue;
+                }
+                s = s.replace("{ISIL}", isil);
+            }
+            s = s.replace("{DESCRIPTION}", description);
+            s = s.replace("{DUMPDATE}", timestamp);
+            s = s.replace("{BEACONFILENAME}", bw.getPath().getFileName().toString());
+            bw.writeLine(s);
+        }
+    }
+
+    /**
+     * @param id the ID of a declaration
+     * @return the property ID or site key the declaration reads
+     * @throws IllegalArgumentException if it's missing
+     */
+    static String getSource(String id) {
+        final String source = Configuration.get().getValue("beacon." + id + ".source");
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("beacon." + id + ".source is missing");
+        }
+        return source.trim();
+    }
+
+    /**
+     * @param source a property ID or site key
+     * @return <code>true</code> if it's a property ID
+     */
+    static boolean isProperty(String source) {
+        return PROPERTY.matcher(source).matches();
+    }
+
+    private String getValue(String key, String defaultValue) {
+        final String value = Configuration.get().getValue("beacon." + id + "." + key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Splits a template into literals and placeholders. Placeholders keep
+     * their braces, so they can't be confused with literals.
+     */
+    private static List<String> parseTemplate(String template) {
+        final List<String> result = new ArrayList<>();
+        final Matcher m = PLACEHOLDER.matcher(template);
+        int last = 0;
+        while (m.find()) {
+            if (m.start() > last) {
+                result.add(template.substring(last, m.start()));
+            }
+            result.add(m.group().intern());
+            last = m.end();
+        }
+        if (last < template.length()) {
+            result.add(template.substring(last));
+        }
+        return result;
+    }
+
+    @Override
+    public void processGndItem(GndItem item) {
+        final String value = siteLink ? item.getSiteLinkTitle(source) : item.getPropertyValue(source);
+        if (value == null || (filter != null && !filter.matcher(value).matches())) {
+            return;
+        }
+
+        line.setLength(0);
+        line.append(item.getGnd()).append("||");
+        for (String part : parts) {
+            switch (part) {
+                case "{value}" ->
+                    line.append(value);
+                case "{value:url}" ->
+                    line.append(URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20"));
+                case "{value:nospace}" ->
+                    line.append(value.replace(" ", ""));
+                case "{qid}" ->
+                    line.append(item.getQid());
+                case "{url}" -> {
+                    final String url = siteLink ? sites.getPageUrl(source, value) : null;
+                    if (url == null) {
+                        return; // there's no site url
+                    }
+                    line.append(url.replaceFirst("http:", ""));
+                }
+                default ->
+                    line.append(part);
+            }
+        }
+
+        try {
+            bw.writeLine(line.toString());
+        } catch (IOException ex) {
+            LOG.warn("Could not write to file {}. {}", bw.getPath(), ex.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "beacon." + id;
+    }
+
+    @Override
+    public List<Path> getOutputFiles() {
+        return List.of(bw.getPath());
+    }
+
+    @Override
+    public void close() {
+        try {
+            bw.close();
+        } catch (IOException e) {
+            LOG.error("Could not write {}. {}", bw.getPath(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.runners;
+
+import de.ddb.beacons.helpers.Configuration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * Creates a {@link DeclaredBeacon} for every ID in the comma separated list
+ * "beacons" of config.xml. Incomplete declarations are logged and skipped.
+ *
+ * @author Michael Büchner
+ */
+public class DeclaredBeaconFactory implements RunnerFactory {
+
+    private final static Logger LOG = LoggerFactory.getLogger(DeclaredBeaconFactory.class);
+
+    @Override
+    public Set<String> getProperties() {
+        final Set<String> properties = new TreeSet<>();
+        for (String id : getIds()) {
+            try {
+                final String source = DeclaredBeacon.getSource(id);
+                if (DeclaredBeacon.isProperty(source)) {
+                    properties.add(source);
+                }
+            } catch (IllegalArgumentException e) {
+                // logged when the runners are created
+            }
+        }
+        return properties;
+    }
+
+    @Override
+    public List<Runner> createRunners(Sites sites, String timestamp) throws IOException {
+        final List<Runner> runners = new ArrayList<>();
+        for (String id : getIds()) {
+            try {
+                runners.add(new DeclaredBeacon(id, sites, timestamp));
+            } catch (IllegalArgumentException e) {
+                LOG.error("Skipping BEACON {}: {}", id, e.getMessage());
+            }
+        }
+        return runners;
+    }
+
+    private static List<String> getIds() {
+        final List<String> ids = new ArrayList<>();
+        final String value = Configuration.get().getValue("beacons");
+        if (value != null) {
+            for (String id : value.split(",")) {
+                if (!id.isBlank()) {
+                    ids.add(id.trim());
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,47 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.runners;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * The built-in runners: images, Wikidata and Wikipedia/Wikisource.
+ *
+ * @author Michael Büchner
+ */
+public class DefaultRunnerFactory implements RunnerFactory {
+
+    @Override
+    public Set<String> getProperties() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public List<Runner> createRunners(Sites sites, String timestamp) throws IOException {
+        return List.of(
+                new BeaconGndImage(sites, timestamp),
+                new BeaconGndWikidata(timestamp),
+                new BeaconGndWikipedia(sites, timestamp));
+    }
+}
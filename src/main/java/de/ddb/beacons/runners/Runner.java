@@ -0,0 +1,43 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.runners;
+
+import de.ddb.beacons.helpers.GndItemProcessor;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A runner writes one or more output files from the items of the GND state
+ * store. Runners are created by a {@link RunnerFactory}.
+ *
+ * @author Michael Büchner
+ */
+public interface Runner extends GndItemProcessor {
+
+    /**
+     * @return the files written by this runner
+     */
+    List<Path> getOutputFiles();
+
+    /**
+     * Writes everything pending and closes the output files.
+     */
+    void close();
+}
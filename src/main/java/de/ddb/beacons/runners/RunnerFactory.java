@@ -0,0 +1,61 @@
+/* 
+ * Copyright 2016-2025, Michael Büchner <m.buechner@dnb.de>
+ * Deutsche Digitale Bibliothek
+ * c/o Deutsche Nationalbibliothek
+ * Informationsinfrastruktur
+ * Adickesallee 1, D-60322 Frankfurt am Main 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.beacons.runners;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * Creates the runners of the export phase. Implementations are found with
+ * {@link ServiceLoader}, so further runners can be added by listing a factory
+ * in META-INF/services/de.ddb.beacons.runners.RunnerFactory of any jar on the
+ * class path.
+ *
+ * @author Michael Büchner
+ */
+public interface RunnerFactory {
+
+    /**
+     * Returns the properties the runners need besides the GND ID, image, logo,
+     * crest and the site links. They are extracted from the dump in the same
+     * pass and kept in the GND state store.
+     *
+     * @return property IDs (e.g. P214)
+     */
+    Set<String> getProperties();
+
+    /**
+     * @param sites the sites table
+     * @param timestamp the date of the dump (yyyy-MM-dd)
+     * @return the runners (may be empty)
+     * @throws IOException if an output file can't be opened
+     */
+    List<Runner> createRunners(Sites sites, String timestamp) throws IOException;
+
+    /**
+     * @return all factories on the class path
+     */
+    static List<RunnerFactory> load() {
+        return ServiceLoader.load(RunnerFactory.class).stream().map(ServiceLoader.Provider::get).toList();
+    }
+}